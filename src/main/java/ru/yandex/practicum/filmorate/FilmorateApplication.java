@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import ru.yandex.practicum.filmorate.config.FilmorateRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(FilmorateRuntimeHints.class)
 public class  FilmorateApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(FilmorateApplication.class, args);
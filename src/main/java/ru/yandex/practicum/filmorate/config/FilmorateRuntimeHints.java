@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmorateEvent;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeCountUpdate;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Подсказки для сборки native image (mvn -Pnative native:compile).
+// Типы из @RequestBody/@ResponseBody контроллеров Spring AOT находит сам, но модели сериализуются и в обход
+// контроллеров: PayloadCache, NDJSON в /events, SSE с лайками. Row mapper'ы в репозиториях - лямбды
+// без рефлексии, для них подсказки не нужны.
+public class FilmorateRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Геттеры и сеттеры Lombok-моделей для Jackson
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Film.class, User.class, Genre.class, MpaRating.class, Suggestion.class,
+                FilmorateEvent.class, LikeCountUpdate.class, EventType.class, FriendshipStatus.class);
+
+        // Скрипты инициализации выбираются по spring.sql.init.platform, schema-*.sql покрывает и схему шардов
+        hints.resources()
+                .registerPattern("schema-*.sql")
+                .registerPattern("data-*.sql");
+
+        // Драйвер H2 загружается через DriverManager по имени из spring.datasource.driverClassName
+        hints.reflection().registerType(TypeReference.of("org.h2.Driver"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources().registerPattern("META-INF/services/java.sql.Driver");
+
+        // Logbook находит фабрику и фильтры тел через ServiceLoader
+        hints.resources()
+                .registerPattern("META-INF/services/org.zalando.logbook.*");
+        hints.reflection()
+                .registerType(TypeReference.of("org.zalando.logbook.core.DefaultLogbookFactory"),
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(TypeReference.of("org.zalando.logbook.json.CompactingJsonBodyFilter"),
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(TypeReference.of("org.zalando.logbook.json.AccessTokenBodyFilter"),
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.config;
+
+import jakarta.servlet.DispatcherType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.autoconfigure.LogbookProperties;
+import org.zalando.logbook.servlet.LogbookFilter;
+import ru.yandex.practicum.filmorate.web.SamplingFilter;
+
+@Slf4j
+@Configuration
+public class LogbookConfig {
+
+    // Заменяет регистрацию фильтра из LogbookAutoConfiguration (с тем же именем, порядком и типами диспетчеризации).
+    // Логируется только доля запросов filmorate.logging.http.sample-rate (от 0.0 до 1.0), и решение принимается
+    // до фильтра Logbook: запросы вне выборки им не оборачиваются и их тела не буферизуются.
+    // Исключения путей из logbook.predicate.exclude Logbook проверяет сам.
+    @Bean
+    public FilterRegistrationBean<SamplingFilter> logbookFilter(
+            Logbook logbook, LogbookProperties properties,
+            @Value("${filmorate.logging.http.sample-rate:0.1}") double sampleRate) {
+        log.info("HTTP-логирование запросов: доля выборки {}", sampleRate);
+        LogbookFilter logbookFilter = new LogbookFilter(logbook)
+                .withFormRequestMode(properties.getFilter().getFormRequestMode());
+        FilterRegistrationBean<SamplingFilter> registration =
+                new FilterRegistrationBean<>(new SamplingFilter(logbookFilter, () -> sampleRate));
+        registration.setName("logbookFilter");
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return registration;
+    }
+}
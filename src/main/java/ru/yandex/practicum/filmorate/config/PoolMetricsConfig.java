@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.web.PoolWaitMonitor;
+
+// Подключает PoolWaitMonitor к пулам Hikari, объявленным бинами: это пул основной базы,
+// в том числе при настроенных репликах (ReplicaDataSourceConfig.primaryDataSource).
+// Пулы шардов бинами не являются и подключаются к монитору в ShardingConfig до первого соединения.
+@Configuration
+public class PoolMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor poolWaitMonitorPostProcessor(ObjectProvider<PoolWaitMonitor> monitor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(monitor.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
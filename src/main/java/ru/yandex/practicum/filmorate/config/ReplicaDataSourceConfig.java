@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.filter.OncePerRequestFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Включается, если задан filmorate.datasource.replicas - список JDBC URL реплик через запятую.
+// Записи и чтения внутри пишущих транзакций идут в spring.datasource, read-only транзакции - на реплики.
+// Для локальной проверки реплики можно указать на ту же базу H2 в режиме AUTO_SERVER=TRUE:
+// тогда данные всегда совпадают, а маршрутизация видна по пулам соединений.
+// После каждой записи чтения идут на основную базу filmorate.datasource.primary-after-write-ms (окно должно
+// покрывать отставание реплик), а записи кешей под версией ресурса всегда строятся по основной базе.
+// Пулы реплик получают те же настройки spring.datasource.hikari.*, что и основная база, и закрываются здесь.
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.datasource.replicas")
+public class ReplicaDataSourceConfig implements DisposableBean {
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    // Пул основной базы объявлен бином: к нему применяются spring.datasource.hikari.* и PoolMetricsConfig
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                 @Value("${filmorate.datasource.replicas}") List<String> replicaUrls,
+                                 @Value("${filmorate.datasource.primary-after-write-ms:1000}") long primaryAfterWriteMs,
+                                 Environment environment) {
+        Binder binder = Binder.get(environment);
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replicaPools.add(replica);
+            replicas.add(replica);
+        }
+        log.info("Чтения направляются на {} реплик(и)", replicas.size());
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicas,
+                primaryAfterWriteMs));
+    }
+
+    @Override
+    public void destroy() {
+        for (HikariDataSource pool : replicaPools) {
+            pool.close();
+        }
+        replicaPools.clear();
+    }
+
+    // Сбрасывает привязку к основной базе после завершения запроса
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> replicaRoutingContextFilter() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                ReplicaRoutingContext.openRequestScope();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    ReplicaRoutingContext.clear();
+                }
+            }
+        });
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
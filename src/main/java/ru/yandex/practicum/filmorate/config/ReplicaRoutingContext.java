@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.function.Supplier;
+
+// Признак того, что текущий запрос уже выполнял запись. После записи все чтения в рамках запроса
+// идут на основную базу, чтобы клиент видел свои изменения независимо от отставания реплик.
+// Вне HTTP-запроса (задачи @Scheduled, фоновые потоки) привязка действует только до конца пишущей транзакции:
+// сбросить ее там больше некому, а поток переиспользуется.
+public final class ReplicaRoutingContext {
+    private static final ThreadLocal<Boolean> REQUEST_SCOPE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    // Привязка сохраняется до clear() в конце запроса
+    public static void openRequestScope() {
+        REQUEST_SCOPE.set(Boolean.TRUE);
+    }
+
+    public static void pinToPrimary() {
+        if (isPinnedToPrimary()) {
+            return;
+        }
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        if (REQUEST_SCOPE.get() == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    PINNED_TO_PRIMARY.remove();
+                }
+            });
+        }
+    }
+
+    // Чтение для записи в кеш под версией ресурса выполняется на основной базе: данные реплики могут
+    // отставать от уже увеличенной версии, и устаревший ответ хранился бы в кеше до следующей записи
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        if (isPinnedToPrimary()) {
+            return action.get();
+        }
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PINNED_TO_PRIMARY.remove();
+        }
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    public static void clear() {
+        PINNED_TO_PRIMARY.remove();
+        REQUEST_SCOPE.remove();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Направляет соединения read-only транзакций на реплики (по кругу), все остальные - на основную базу.
+// Должен использоваться через LazyConnectionDataSourceProxy: иначе соединение берется до того,
+// как транзакция помечена как read-only.
+// После каждой зафиксированной записи все чтения в течение primaryAfterWriteMillis идут на основную базу:
+// следующий запрос клиента (и любого другого) видит изменения, даже если реплики еще не догнали основную базу.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica-";
+
+    private final int replicaCount;
+    private final long primaryAfterWriteNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile long lastCommit;
+    private volatile boolean committed;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long primaryAfterWriteMillis) {
+        this(primary, replicas, primaryAfterWriteMillis, System::nanoTime);
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long primaryAfterWriteMillis,
+                             LongSupplier clock) {
+        this.replicaCount = replicas.size();
+        this.primaryAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(primaryAfterWriteMillis);
+        this.clock = clock;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (!readOnly && TransactionSynchronizationManager.isActualTransactionActive()) {
+            ReplicaRoutingContext.pinToPrimary();
+            registerCommitTime();
+        }
+
+        if (!readOnly || replicaCount == 0 || ReplicaRoutingContext.isPinnedToPrimary() || recentlyWritten()) {
+            return PRIMARY;
+        }
+        return REPLICA + Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+    }
+
+    // Синхронизация регистрируется при получении соединения, то есть раньше afterCommit сервисов:
+    // к моменту увеличения версий ресурсов чтения уже идут на основную базу
+    private void registerCommitTime() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastCommit = clock.getAsLong();
+                committed = true;
+            }
+        });
+    }
+
+    private boolean recentlyWritten() {
+        return committed && clock.getAsLong() - lastCommit < primaryAfterWriteNanos;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.dal.SqlDialect;
+import javax.sql.DataSource;
+
+// Заменяет стандартный инициализатор spring.sql.init: скрипты выполняются, только если изменилась их версия
+@Configuration
+@EnableConfigurationProperties(SqlInitializationProperties.class)
+public class SchemaInitializationConfig {
+
+    @Bean
+    public VersionedSchemaInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource,
+                                                                         SqlInitializationProperties properties,
+                                                                         SqlDialect sqlDialect) {
+        return new VersionedSchemaInitializer(dataSource,
+                SqlDataSourceScriptDatabaseInitializer.getSettings(properties), sqlDialect);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.dal.ShardRouter;
+import ru.yandex.practicum.filmorate.web.PoolWaitMonitor;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// filmorate.sharding.shards - JDBC URL дополнительных шардов через запятую (логин и пароль как у spring.datasource).
+// Без него все данные живут в основной базе, как и раньше. Порядок шардов менять нельзя:
+// после добавления шарда строки переносятся через ShardRebalancer (filmorate.sharding.rebalance-on-startup=true).
+// Пулы соединений шардов создаются здесь, а не бинами, поэтому и закрываются здесь при остановке контекста.
+@Slf4j
+@Configuration
+public class ShardingConfig implements DisposableBean {
+
+    private final List<HikariDataSource> shardPools = new ArrayList<>();
+
+    @Bean
+    public ShardRouter shardRouter(JdbcTemplate jdbcTemplate, DataSourceProperties properties,
+                                   @Value("${filmorate.sharding.shards:}") List<String> shardUrls,
+                                   @Value("${spring.sql.init.platform:h2}") String platform,
+                                   ObjectProvider<PoolWaitMonitor> poolWaitMonitor) {
+        List<JdbcTemplate> shards = new ArrayList<>();
+        shards.add(jdbcTemplate);
+
+        for (String url : shardUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            DataSource dataSource = DataSourceBuilder.create()
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            // Лайки и дружба пишутся в шарды, поэтому ожидание их пулов тоже учитывается при сбросе нагрузки
+            if (dataSource instanceof HikariDataSource hikari) {
+                poolWaitMonitor.ifAvailable(hikari::setMetricsTrackerFactory);
+                shardPools.add(hikari);
+            }
+            new ResourceDatabasePopulator(new ClassPathResource("schema-shard-" + platform + ".sql"))
+                    .execute(dataSource);
+            shards.add(new JdbcTemplate(dataSource));
+        }
+
+        if (shards.size() > 1) {
+            log.info("Лайки и дружба распределены по {} шардам", shards.size());
+        }
+        return new ShardRouter(shards);
+    }
+
+    @Override
+    public void destroy() {
+        for (HikariDataSource pool : shardPools) {
+            pool.close();
+        }
+        shardPools.clear();
+    }
+}
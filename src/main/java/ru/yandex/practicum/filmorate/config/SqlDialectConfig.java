@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import ru.yandex.practicum.filmorate.dal.SqlDialect;
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+@Slf4j
+@Configuration
+public class SqlDialectConfig {
+
+    // Диалект можно задать явно через filmorate.sql.dialect (h2 или postgresql),
+    // иначе он определяется по метаданным подключения
+    @Bean
+    public SqlDialect sqlDialect(DataSource dataSource,
+                                 @Value("${filmorate.sql.dialect:}") String configuredDialect)
+            throws MetaDataAccessException {
+        SqlDialect dialect;
+        if (!configuredDialect.isBlank()) {
+            dialect = SqlDialect.valueOf(configuredDialect.trim().toUpperCase());
+        } else {
+            String productName = JdbcUtils.extractDatabaseMetaData(dataSource,
+                    DatabaseMetaData::getDatabaseProductName);
+            dialect = SqlDialect.fromDatabaseProductName(productName);
+        }
+        log.info("Используется SQL-диалект {}", dialect);
+        return dialect;
+    }
+}
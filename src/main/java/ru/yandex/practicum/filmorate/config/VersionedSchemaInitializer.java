@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.SqlDialect;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+// Выполняет schema-*.sql и data-*.sql, только если они изменились с прошлого запуска.
+// Контрольная сумма скриптов хранится в таблице schema_version; при совпадении инициализация пропускается.
+@Slf4j
+public class VersionedSchemaInitializer extends SqlDataSourceScriptDatabaseInitializer {
+    private static final String OPTIONAL_PREFIX = "optional:";
+
+    private final DatabaseInitializationSettings settings;
+    private final SqlDialect dialect;
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+
+    public VersionedSchemaInitializer(DataSource dataSource, DatabaseInitializationSettings settings,
+                                      SqlDialect dialect) {
+        super(dataSource, settings);
+        this.settings = settings;
+        this.dialect = dialect;
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        DatabaseInitializationMode mode = settings.getMode();
+        if (mode == DatabaseInitializationMode.NEVER
+                || (mode == DatabaseInitializationMode.EMBEDDED && !isEmbeddedDatabase())) {
+            return false;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(getDataSource());
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                "id INT PRIMARY KEY, checksum VARCHAR(64) NOT NULL, applied_at TIMESTAMP NOT NULL)");
+        String checksum = scriptsChecksum();
+        List<String> applied = jdbcTemplate.queryForList("SELECT checksum FROM schema_version WHERE id = 1",
+                String.class);
+
+        if (!applied.isEmpty() && applied.get(0).equals(checksum)) {
+            log.info("Схема базы актуальна ({}), инициализация пропущена", checksum.substring(0, 12));
+            return false;
+        }
+
+        boolean initialized = super.initializeDatabase();
+        // Два экземпляра на новой базе оба не находят строку версии: вставка без дубликатов не дает
+        // второму упасть на первичном ключе, и его контрольная сумма записывается обновлением
+        String insert = dialect.insertIgnoringDuplicates("schema_version", List.of("id"),
+                List.of("id", "checksum", "applied_at"));
+        if (jdbcTemplate.update(insert, 1, checksum, Timestamp.from(Instant.now())) == 0) {
+            jdbcTemplate.update("UPDATE schema_version SET checksum = ?, applied_at = CURRENT_TIMESTAMP " +
+                    "WHERE id = 1", checksum);
+        }
+        log.info("Скрипты инициализации базы выполнены, версия схемы {}", checksum.substring(0, 12));
+        return initialized;
+    }
+
+    String scriptsChecksum() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Resource resource : resolve(settings.getSchemaLocations())) {
+                update(digest, resource);
+            }
+            digest.update((byte) 0);
+            for (Resource resource : resolve(settings.getDataLocations())) {
+                update(digest, resource);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Resource> resolve(List<String> locations) {
+        List<Resource> resources = new ArrayList<>();
+        if (locations == null) {
+            return resources;
+        }
+        try {
+            for (String location : locations) {
+                String pattern = location.startsWith(OPTIONAL_PREFIX)
+                        ? location.substring(OPTIONAL_PREFIX.length())
+                        : location;
+                for (Resource resource : resourceResolver.getResources(pattern)) {
+                    if (resource.exists()) {
+                        resources.add(resource);
+                    }
+                }
+            }
+            return resources;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать скрипты инициализации базы", e);
+        }
+    }
+
+    private void update(MessageDigest digest, Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            digest.update(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать скрипт " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.eventlog.EventLog;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// События отдаются построчно в формате NDJSON прямо из журнала, без сборки списка в памяти.
+// Заголовок X-Next-Offset - значение since для следующего запроса.
+@Slf4j
+@Validated
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/events")
+public class EventController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final EventLog eventLog;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getEvents(
+            @RequestParam(defaultValue = "0") @Min(0) long since,
+            @RequestParam(defaultValue = "1000") @Min(1) @Max(10000) int limit) {
+        long from = Math.max(since, eventLog.firstOffset());
+        long until = Math.max(from, Math.min(eventLog.getNextOffset(), from + limit));
+        log.debug("Получен запрос на события с {} по {}", from, until);
+
+        StreamingResponseBody body = out -> eventLog.read(from, until, event -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header("X-Next-Offset", String.valueOf(until))
+                .body(body);
+    }
+}
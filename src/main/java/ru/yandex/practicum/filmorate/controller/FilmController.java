@@ -4,36 +4,77 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import ru.yandex.practicum.filmorate.web.LikeStreamBroadcaster;
+import ru.yandex.practicum.filmorate.web.PayloadCache;
 import java.util.List;
+import java.util.Set;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 
 @Slf4j
 @Validated
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    // Для больших значений count ответы не кешируются: такие списки запрашивают редко, а места в кеше они
+    // занимают много (число записей кеша ограничено filmorate.payload-cache.max-entries)
+    private static final int MAX_CACHED_POPULAR_COUNT = 100;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final FilmService filmService;
+    private final ResourceVersions resourceVersions;
+    private final PayloadCache payloadCache;
+    private final LikeStreamBroadcaster likeStreamBroadcaster;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ResourceVersions resourceVersions, PayloadCache payloadCache,
+                          LikeStreamBroadcaster likeStreamBroadcaster) {
         this.filmService = filmService;
+        this.resourceVersions = resourceVersions;
+        this.payloadCache = payloadCache;
+        this.likeStreamBroadcaster = likeStreamBroadcaster;
     }
 
+    // С параметром ids (GET /films?ids=1,2,3) возвращаются только указанные фильмы,
+    // с параметром fields (GET /films?fields=id,name,mpa) - только указанные поля
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Получен запрос на получение всех фильмов");
-        List<Film> films = filmService.getAllFilms();
-        log.info("Возвращено {} фильмов", films.size());
-        return films;
+    public Object getAllFilms(
+            @RequestParam(required = false)
+            @Size(max = MAX_BATCH_SIZE, message = "Можно запросить не больше " + MAX_BATCH_SIZE + " фильмов")
+            List<@Positive Integer> ids,
+            @RequestParam(required = false) String fields) {
+        Set<FilmField> selected = FilmField.parse(fields);
+        List<Film> films;
+        if (ids != null) {
+            log.debug("Получен запрос на получение {} фильмов по id", ids.size());
+            films = filmService.getFilmsByIds(ids, selected);
+        } else {
+            log.debug("Получен запрос на получение всех фильмов");
+            films = filmService.getAllFilms(selected);
+        }
+        log.debug("Возвращено {} фильмов", films.size());
+        return fields == null ? films : withFields(films, selected);
     }
 
     @PostMapping
     public Film addFilm(@Valid @RequestBody Film film) {
-        log.info("Получен запрос на добавление фильма: {}", film);
+        log.info("Получен запрос на добавление фильма '{}'", film.getName());
         Film addedFilm = filmService.addFilm(film);
         log.info("Фильм успешно добавлен с id: {}", addedFilm.getId());
         return addedFilm;
@@ -41,41 +82,110 @@ public class FilmController {
 
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
-        log.info("Получен запрос на обновление фильма с id {}: {}", film.getId(), film);
+        log.info("Получен запрос на обновление фильма с id {}", film.getId());
         Film updatedFilm = filmService.updateFilm(film);
         log.info("Фильм с id {} успешно обновлен", updatedFilm.getId());
         return updatedFilm;
     }
 
+    // С includeLikes=true в ответе заполняется likes - id лайкнувших пользователей
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable @Positive int id) {
-        log.info("Получен запрос на получение фильма с id: {}", id);
+    public Film getFilmById(@PathVariable @Positive int id,
+                            @RequestParam(defaultValue = "false") boolean includeLikes,
+                            WebRequest request) {
+        log.debug("Получен запрос на получение фильма с id: {}", id);
+        if (includeLikes) {
+            // Версия фильма не меняется при лайках, поэтому условный ответ 304 здесь не применяется
+            return filmService.getFilmWithLikes(id);
+        }
+        ResourceVersions.Version version = resourceVersions.getFilmVersion(id);
+        if (payloadCache.checkNotModified(version, request)) {
+            log.debug("Фильм с id {} не изменился, возвращается 304", id);
+            return null;
+        }
         Film film = filmService.getFilmById(id);
-        log.info("Найден фильм: {}", film);
+        log.debug("Найден фильм: {}", film);
         return film;
     }
 
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable @Positive int id, @PathVariable @Positive int userId) {
-        log.info("Получен запрос на добавление лайка фильму с id {} от пользователя с id {}", id, userId);
+        log.debug("Получен запрос на добавление лайка фильму с id {} от пользователя с id {}", id, userId);
         filmService.addLike(id, userId);
         log.info("Лайк успешно добавлен фильму с id {} от пользователя с id {}", id, userId);
     }
 
+    // Пользователи, лайкнувшие фильм, от последних лайков к первым
+    @GetMapping("/{id}/likes")
+    public CursorPage<User> getFilmLikers(@PathVariable @Positive int id,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "20") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        log.debug("Получен запрос на получение пользователей, лайкнувших фильм с id {}", id);
+        return filmService.getFilmLikers(id, cursor, limit);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void removeLike(@PathVariable @Positive int id, @PathVariable @Positive int userId) {
-        log.info("Получен запрос на удаление лайка фильму с id {} от пользователя с id {}", id, userId);
+        log.debug("Получен запрос на удаление лайка фильму с id {} от пользователя с id {}", id, userId);
         filmService.removeLike(id, userId);
         log.info("Лайк успешно удален у фильма с id {} от пользователя с id {}", id, userId);
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(
+    public ResponseEntity<?> getPopularFilms(
+            @RequestParam(defaultValue = "10") @Min(1) int count,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) @Positive Integer genreId,
+            @RequestParam(required = false) @Positive Integer mpaId,
+            WebRequest request) {
+        log.debug("Получен запрос на получение {} популярных фильмов, жанр {}, MPA {}", count, genreId, mpaId);
+        Set<FilmField> selected = FilmField.parse(fields);
+        ResourceVersions.Version version = filmService.getPopularFilmsVersion(count, selected);
+        if (payloadCache.checkNotModified(version, request)) {
+            log.debug("Список популярных фильмов не изменился, возвращается 304");
+            return null;
+        }
+        if (count <= MAX_CACHED_POPULAR_COUNT) {
+            String key = "films:popular:" + count + ":" + genreId + ":" + mpaId + (fields == null ? "" : ":" + selected);
+            return payloadCache.respond(key, version,
+                    () -> filmService.getPopularFilms(count, selected, genreId, mpaId),
+                    fields == null ? null : FilmField.filter(selected), request);
+        }
+        List<Film> popularFilms = filmService.getPopularFilms(count, selected, genreId, mpaId);
+        log.debug("Возвращено {} популярных фильмов", popularFilms.size());
+        return ResponseEntity.ok(fields == null ? popularFilms : withFields(popularFilms, selected));
+    }
+
+    // Поток SSE с изменениями числа лайков указанных фильмов
+    @GetMapping(path = "/likes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLikes(@RequestParam List<Integer> ids) {
+        log.debug("Получен запрос на подписку на лайки фильмов {}", ids);
+        return likeStreamBroadcaster.subscribe(ids);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "title,description") List<String> by,
             @RequestParam(defaultValue = "10") @Min(1) int count) {
-        log.info("Получен запрос на получение {} популярных фильмов", count);
-        List<Film> popularFilms = filmService.getPopularFilms(count);
-        log.info("Возвращено {} популярных фильмов", popularFilms.size());
-        return popularFilms;
+        log.debug("Получен запрос на поиск фильмов: '{}' по полям {}", query, by);
+        List<Film> films = filmService.searchFilms(query, by, count);
+        log.debug("По запросу '{}' найдено {} фильмов", query, films.size());
+        return films;
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> autocompleteFilms(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Min(1) int count) {
+        log.info("Получен запрос на автодополнение названий фильмов по префиксу '{}'", prefix);
+        return filmService.autocompleteFilms(prefix, count);
+    }
+
+    private static MappingJacksonValue withFields(Object body, Set<FilmField> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(FilmField.filter(fields));
+        return value;
     }
 
     @GetMapping("/info")
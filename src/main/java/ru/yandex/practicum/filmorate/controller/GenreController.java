@@ -2,10 +2,13 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
-import java.util.List;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import ru.yandex.practicum.filmorate.web.PayloadCache;
 
 @Slf4j
 @RestController
@@ -14,16 +17,22 @@ import java.util.List;
 public class GenreController {
 
     private final GenreDbStorage genreStorage;
+    private final ResourceVersions resourceVersions;
+    private final PayloadCache payloadCache;
 
     @GetMapping
-    public List<Genre> getAllGenres() {
-        log.info("Получен запрос на получение всех жанров");
-        return genreStorage.getAllGenres();
+    public ResponseEntity<byte[]> getAllGenres(WebRequest request) {
+        log.debug("Получен запрос на получение всех жанров");
+        ResourceVersions.Version version = resourceVersions.getGenresVersion();
+        if (payloadCache.checkNotModified(version, request)) {
+            return null;
+        }
+        return payloadCache.respond("genres", version, genreStorage::getAllGenres, request);
     }
 
     @GetMapping("/{id}")
     public Genre getGenreById(@PathVariable int id) {
-        log.info("Получен запрос на получение жанра с id: {}", id);
+        log.debug("Получен запрос на получение жанра с id: {}", id);
         return genreStorage.getGenreById(id);
     }
 }
\ No newline at end of file
@@ -3,8 +3,11 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import ru.yandex.practicum.filmorate.web.PayloadCache;
 import java.util.List;
 
 @Slf4j
@@ -14,16 +17,22 @@ import java.util.List;
 public class MpaController {
 
     private final MpaDbStorage mpaStorage;
+    private final ResourceVersions resourceVersions;
+    private final PayloadCache payloadCache;
 
     @GetMapping
-    public List<MpaRating> getAllMpaRatings() {
-        log.info("Получен запрос на получение всех MPA рейтингов");
+    public List<MpaRating> getAllMpaRatings(WebRequest request) {
+        log.debug("Получен запрос на получение всех MPA рейтингов");
+        ResourceVersions.Version version = resourceVersions.getMpaVersion();
+        if (payloadCache.checkNotModified(version, request)) {
+            return null;
+        }
         return mpaStorage.getAllMpaRatings();
     }
 
     @GetMapping("/{id}")
     public MpaRating getMpaRatingById(@PathVariable int id) {
-        log.info("Получен запрос на получение MPA рейтинга с id: {}", id);
+        log.debug("Получен запрос на получение MPA рейтинга с id: {}", id);
         return mpaStorage.getMpaRatingById(id);
     }
 }
\ No newline at end of file
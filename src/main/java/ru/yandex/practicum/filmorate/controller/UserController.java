@@ -4,35 +4,55 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import java.util.List;
 import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 
 @Slf4j
 @Validated
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService) {
         this.userService = userService;
+        this.filmService = filmService;
     }
 
+    // С параметром ids (GET /users?ids=1,2,3) возвращаются только указанные пользователи
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("Получен запрос на получение всех пользователей");
+    public List<User> getAllUsers(
+            @RequestParam(required = false)
+            @Size(max = MAX_BATCH_SIZE, message = "Можно запросить не больше " + MAX_BATCH_SIZE + " пользователей")
+            List<@Positive Integer> ids) {
+        if (ids != null) {
+            log.debug("Получен запрос на получение {} пользователей по id", ids.size());
+            return userService.getUsersByIds(ids);
+        }
+        log.debug("Получен запрос на получение всех пользователей");
         List<User> users = userService.getAllUsers();
-        log.info("Возвращено {} пользователей", users.size());
+        log.debug("Возвращено {} пользователей", users.size());
         return users;
     }
 
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
-        log.info("Получен запрос на создание пользователя: {}", user);
+        log.info("Получен запрос на создание пользователя с логином {}", user.getLogin());
         User createdUser = userService.addUser(user);
         log.info("Пользователь успешно создан с id: {}", createdUser.getId());
         return createdUser;
@@ -40,7 +60,7 @@ public class UserController {
 
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
-        log.info("Получен запрос на обновление пользователя с id {}: {}", user.getId(), user);
+        log.info("Получен запрос на обновление пользователя с id {}", user.getId());
         User updatedUser = userService.updateUser(user);
         log.info("Пользователь с id {} успешно обновлен", updatedUser.getId());
         return updatedUser;
@@ -48,40 +68,57 @@ public class UserController {
 
     @GetMapping("/{id}")
     public User getUserById(@PathVariable @Positive int id) {
-        log.info("Получен запрос на получение пользователя с id: {}", id);
+        log.debug("Получен запрос на получение пользователя с id: {}", id);
         User user = userService.getUserById(id);
-        log.info("Найден пользователь: {}", user);
+        log.debug("Найден пользователь: {}", user);
         return user;
     }
 
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable @Positive int id, @PathVariable @Positive int friendId) {
-        log.info("Получен запрос на добавление в друзья: пользователь {} добавляет пользователя {}", id, friendId);
+        log.debug("Получен запрос на добавление в друзья: пользователь {} добавляет пользователя {}", id, friendId);
         userService.addFriend(id, friendId);
         log.info("Пользователь {} успешно добавлен в друзья пользователю {}", friendId, id);
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFriend(@PathVariable @Positive int id, @PathVariable @Positive int friendId) {
-        log.info("Получен запрос на удаление из друзей: пользователь {} удаляет пользователя {}", id, friendId);
+        log.debug("Получен запрос на удаление из друзей: пользователь {} удаляет пользователя {}", id, friendId);
         userService.removeFriend(id, friendId);
         log.info("Пользователь {} успешно удален из друзей пользователя {}", friendId, id);
     }
 
+    // Фильмы, которые лайкнул пользователь, от последних лайков к первым
+    @GetMapping("/{id}/likes")
+    public CursorPage<Film> getLikedFilms(@PathVariable @Positive int id,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "20") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        log.debug("Получен запрос на получение фильмов, которые лайкнул пользователь с id {}", id);
+        return filmService.getLikedFilms(id, cursor, limit);
+    }
+
     @GetMapping("/{id}/friends")
     public List<User> getFriends(@PathVariable @Positive int id) {
-        log.info("Получен запрос на получение списка друзей пользователя с id: {}", id);
+        log.debug("Получен запрос на получение списка друзей пользователя с id: {}", id);
         List<User> friends = userService.getFriends(id);
-        log.info("Возвращено {} друзей пользователя с id {}", friends.size(), id);
+        log.debug("Возвращено {} друзей пользователя с id {}", friends.size(), id);
         return friends;
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable @Positive int id, @PathVariable @Positive int otherId) {
-        log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
+        log.debug("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
         List<User> commonFriends = userService.getCommonFriends(id, otherId);
-        log.info("Найдено {} общих друзей пользователей {} и {}", commonFriends.size(), id, otherId);
+        log.debug("Найдено {} общих друзей пользователей {} и {}", commonFriends.size(), id, otherId);
         return commonFriends;
     }
 
+    @GetMapping("/autocomplete")
+    public List<Suggestion> autocompleteUsers(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Min(1) int count) {
+        log.info("Получен запрос на автодополнение логинов по префиксу '{}'", prefix);
+        return userService.autocompleteUsers(prefix, count);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.util.HashMap;
+import java.util.Map;
+
+// Версии фильмов и количество пользователей - для сверки восстановленных из снимка индексов с базой
+@Repository
+@RequiredArgsConstructor
+public class EntityCountRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Версия увеличивается при каждом обновлении фильма; читаются только два столбца без текста
+    public Map<Integer, Integer> getFilmVersions() {
+        Map<Integer, Integer> versions = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, version FROM films", rs -> {
+            versions.put(rs.getInt("film_id"), rs.getInt("version"));
+        });
+        return versions;
+    }
+
+    public long countUsers() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        return count == null ? 0 : count;
+    }
+}
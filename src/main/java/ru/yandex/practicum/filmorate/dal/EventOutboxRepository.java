@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Событие вставляется в той же транзакции, что и изменение: оно сохраняется вместе с изменением
+// и не появляется для откаченного. В журнал событий его переносит EventOutboxRelay
+@Repository
+@RequiredArgsConstructor
+public class EventOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void add(EventType type, Integer filmId, Integer userId, Integer friendId) {
+        jdbcTemplate.update("INSERT INTO event_outbox (event_type, created_at, film_id, user_id, friend_id) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                type.name(), System.currentTimeMillis(), filmId, userId, friendId);
+    }
+
+    public List<OutboxEvent> findOldest(int limit) {
+        return jdbcTemplate.query("SELECT * FROM event_outbox ORDER BY event_id LIMIT ?", this::mapRow, limit);
+    }
+
+    public void delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM event_outbox WHERE event_id = ANY(?)", (Object) ids.toArray(new Long[0]));
+    }
+
+    private OutboxEvent mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new OutboxEvent(
+                rs.getLong("event_id"),
+                EventType.valueOf(rs.getString("event_type")),
+                rs.getLong("created_at"),
+                rs.getObject("film_id", Integer.class),
+                rs.getObject("user_id", Integer.class),
+                rs.getObject("friend_id", Integer.class));
+    }
+}
@@ -1,60 +1,265 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+// Лайки шардируются по film_id: все лайки одного фильма лежат в одном шарде.
+// Дополнительные шарды не участвуют в транзакции основной базы, поэтому запись в них вызывается последней,
+// а при откате транзакции отменяется отдельным запросом
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class FilmLikesRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    // Название MPA не читается: рейтинг берется из справочника по mpa_id
+    private static final String FILM_COLUMNS = "SELECT f.* FROM films f ";
+    private static final String DELETE_LIKE_SQL = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+
+    private final ShardRouter shardRouter;
+    private final ReferenceDataCache referenceDataCache;
+    private final SqlDialect sqlDialect;
 
     public void addLike(int filmId, int userId) {
-        String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
-        try {
-            jdbcTemplate.update(sql, filmId, userId);
-        } catch (Exception e) {
+        String sql = sqlDialect.insertIgnoringDuplicates("film_likes",
+                List.of("film_id", "user_id"), List.of("film_id", "user_id"));
+        JdbcTemplate shard = shardRouter.forKey(filmId);
+        int inserted = shard.update(sql, filmId, userId);
+
+        if (inserted == 0) {
             throw new ValidationException("Пользователь уже поставил лайк этому фильму");
         }
+        if (shard != shardRouter.primary()) {
+            onRollback(() -> shard.update(DELETE_LIKE_SQL, filmId, userId));
+        }
     }
 
     public void removeLike(int filmId, int userId) {
-        String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        int deleted = jdbcTemplate.update(sql, filmId, userId);
+        JdbcTemplate shard = shardRouter.forKey(filmId);
+        if (shard == shardRouter.primary()) {
+            if (shard.update(DELETE_LIKE_SQL, filmId, userId) == 0) {
+                throw new ValidationException("Лайк не найден");
+            }
+            return;
+        }
 
-        if (deleted == 0) {
+        // Время лайка запоминается, чтобы при откате вернуть его на прежнее место в постраничных списках
+        List<LocalDateTime> createdAt = shard.queryForList(
+                "SELECT created_at FROM film_likes WHERE film_id = ? AND user_id = ?",
+                LocalDateTime.class, filmId, userId);
+        if (createdAt.isEmpty() || shard.update(DELETE_LIKE_SQL, filmId, userId) == 0) {
             throw new ValidationException("Лайк не найден");
         }
+        String restoreSql = sqlDialect.insertIgnoringDuplicates("film_likes",
+                List.of("film_id", "user_id"), List.of("film_id", "user_id", "created_at"));
+        onRollback(() -> shard.update(restoreSql, filmId, userId, createdAt.get(0)));
+    }
+
+    // Если отмена не удалась, расхождение со сводкой исправит FilmSummaryChecker, а сам лайк остается в шарде
+    private static void onRollback(Runnable compensation) {
+        ShardTransactions.onRollback("изменение лайка", compensation);
     }
 
     public List<Film> getPopularFilms(int count) {
-        String sql = "SELECT f.*, m.mpa_id, m.name as mpa_name, COUNT(fl.user_id) as likes_count " +
-                "FROM films f " +
-                "JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_likes fl ON f.film_id = fl.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT ?";
-
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Film film = new Film();
-            film.setId(rs.getInt("film_id"));
-            film.setName(rs.getString("title"));
-            film.setDescription(rs.getString("description"));
-            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-            film.setDuration(rs.getInt("duration"));
-
-            MpaRating mpa = new MpaRating();
-            mpa.setId(rs.getInt("mpa_id"));
-            mpa.setName(rs.getString("mpa_name"));
-            film.setMpa(mpa);
-
-            return film;
-        }, count);
-    }
-}
\ No newline at end of file
+        if (shardRouter.isSingleShard()) {
+            String sql = "SELECT f.*, COUNT(fl.user_id) as likes_count " +
+                    "FROM films f " +
+                    "LEFT JOIN film_likes fl ON f.film_id = fl.film_id " +
+                    "GROUP BY f.film_id " +
+                    "ORDER BY likes_count DESC " +
+                    "LIMIT ?";
+
+            return shardRouter.primary().query(sql, this::mapRowToFilm, count);
+        }
+
+        // Каждый шард отдает свой топ: фильм целиком лежит в одном шарде, поэтому слияние топов точное
+        String topSql = "SELECT film_id, COUNT(*) AS likes_count FROM film_likes " +
+                "GROUP BY film_id ORDER BY likes_count DESC, film_id LIMIT ?";
+        List<int[]> top = new ArrayList<>();
+        for (JdbcTemplate shard : shardRouter.all()) {
+            top.addAll(shard.query(topSql,
+                    (rs, rowNum) -> new int[]{rs.getInt("film_id"), rs.getInt("likes_count")}, count));
+        }
+        List<Integer> topIds = top.stream()
+                .sorted(Comparator.<int[]>comparingInt(row -> row[1]).reversed()
+                        .thenComparingInt(row -> row[0]))
+                .limit(count)
+                .map(row -> row[0])
+                .toList();
+
+        JdbcTemplate primary = shardRouter.primary();
+        Integer[] topIdArray = topIds.toArray(new Integer[0]);
+        Map<Integer, Film> filmsById = primary.query(FILM_COLUMNS + "WHERE f.film_id = ANY(?)",
+                        this::mapRowToFilm, (Object) topIdArray).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+
+        List<Film> result = new ArrayList<>(count);
+        for (Integer id : topIds) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+
+        // Как и в запросе с LEFT JOIN, недостающие места занимают фильмы без лайков
+        if (result.size() < count) {
+            result.addAll(primary.query(FILM_COLUMNS + "WHERE NOT (f.film_id = ANY(?)) ORDER BY f.film_id LIMIT ?",
+                    this::mapRowToFilm, topIdArray, count - result.size()));
+        }
+        return result;
+    }
+
+    // Популярные фильмы одного жанра или рейтинга (задается не больше одного фильтра). В одной базе - запрос
+    // с условием; при шардировании лайки считаются только для подходящих фильмов
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId) {
+        if (genreId == null && mpaId == null) {
+            return getPopularFilms(count);
+        }
+        String filter = genreId != null
+                ? "f.film_id IN (SELECT film_id FROM film_genres WHERE genre_id = ?) "
+                : "f.mpa_id = ? ";
+        int filterValue = genreId != null ? genreId : mpaId;
+        JdbcTemplate primary = shardRouter.primary();
+
+        if (shardRouter.isSingleShard()) {
+            String sql = "SELECT f.*, COUNT(fl.user_id) AS likes_count " +
+                    "FROM films f " +
+                    "LEFT JOIN film_likes fl ON f.film_id = fl.film_id " +
+                    "WHERE " + filter +
+                    "GROUP BY f.film_id " +
+                    "ORDER BY likes_count DESC, f.film_id " +
+                    "LIMIT ?";
+            return primary.query(sql, this::mapRowToFilm, filterValue, count);
+        }
+
+        List<Film> candidates = primary.query(FILM_COLUMNS + "WHERE " + filter, this::mapRowToFilm, filterValue);
+        Map<Integer, Integer> likes = getLikeCounts(candidates.stream().map(Film::getId).toList());
+        return candidates.stream()
+                .sorted(Comparator.<Film>comparingInt(film -> likes.getOrDefault(film.getId(), 0)).reversed()
+                        .thenComparingInt(Film::getId))
+                .limit(count)
+                .toList();
+    }
+
+    public Map<Integer, Integer> getLikeCounts() {
+        String sql = "SELECT film_id, COUNT(*) AS likes_count FROM film_likes GROUP BY film_id";
+        Map<Integer, Integer> result = new HashMap<>();
+        for (JdbcTemplate shard : shardRouter.all()) {
+            shard.query(sql, rs -> {
+                result.put(rs.getInt("film_id"), rs.getInt("likes_count"));
+            });
+        }
+        return result;
+    }
+
+    // Точное число лайков выбранных фильмов; фильмы без лайков в результат не попадают
+    public Map<Integer, Integer> getLikeCounts(Collection<Integer> filmIds) {
+        Map<Integer, List<Integer>> idsByShard = filmIds.stream()
+                .collect(Collectors.groupingBy(shardRouter::shardIndexFor));
+        String sql = "SELECT film_id, COUNT(*) AS likes_count FROM film_likes " +
+                "WHERE film_id = ANY(?) GROUP BY film_id";
+        Map<Integer, Integer> result = new HashMap<>();
+        idsByShard.forEach((shard, ids) -> shardRouter.shard(shard).query(sql, rs -> {
+            result.put(rs.getInt("film_id"), rs.getInt("likes_count"));
+        }, (Object) ids.toArray(new Integer[0])));
+        return result;
+    }
+
+    // Лайки пользователя от новых к старым, id в позициях - фильмы. Лайки пользователя разбросаны по шардам,
+    // поэтому каждый шард отдает свою первую страницу, и они сливаются. Запросы читают только индекс
+    // (user_id, created_at, film_id)
+    public List<LikeCursor> getLikesByUser(int userId, LikeCursor after, int limit) {
+        String sql = "SELECT film_id AS liked_id, created_at FROM film_likes WHERE user_id = ? " +
+                (after == null ? "" : "AND (created_at, film_id) < (?, ?) ") +
+                "ORDER BY created_at DESC, film_id DESC LIMIT ?";
+        Object[] args = after == null
+                ? new Object[]{userId, limit}
+                : new Object[]{userId, after.createdAt(), after.id(), limit};
+
+        List<LikeCursor> result = new ArrayList<>();
+        for (JdbcTemplate shard : shardRouter.all()) {
+            result.addAll(shard.query(sql, this::mapRowToCursor, args));
+        }
+        if (shardRouter.isSingleShard()) {
+            return result;
+        }
+        return result.stream()
+                .sorted(Comparator.comparing(LikeCursor::createdAt).thenComparingInt(LikeCursor::id).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    // Лайки фильма от новых к старым, id в позициях - пользователи. Индекс (film_id, created_at, user_id)
+    public List<LikeCursor> getLikesOfFilm(int filmId, LikeCursor after, int limit) {
+        String sql = "SELECT user_id AS liked_id, created_at FROM film_likes WHERE film_id = ? " +
+                (after == null ? "" : "AND (created_at, user_id) < (?, ?) ") +
+                "ORDER BY created_at DESC, user_id DESC LIMIT ?";
+        Object[] args = after == null
+                ? new Object[]{filmId, limit}
+                : new Object[]{filmId, after.createdAt(), after.id(), limit};
+        return shardRouter.forKey(filmId).query(sql, this::mapRowToCursor, args);
+    }
+
+    public Set<Integer> getUserIdsWhoLiked(int filmId) {
+        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
+        return new HashSet<>(shardRouter.forKey(filmId).queryForList(sql, Integer.class, filmId));
+    }
+
+    // id лайкнувших пользователей для нескольких фильмов: по одному запросу на шард
+    public Map<Integer, Set<Integer>> getUserIdsWhoLiked(Collection<Integer> filmIds) {
+        Map<Integer, List<Integer>> idsByShard = filmIds.stream()
+                .collect(Collectors.groupingBy(shardRouter::shardIndexFor));
+        String sql = "SELECT film_id, user_id FROM film_likes WHERE film_id = ANY(?)";
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        idsByShard.forEach((shard, ids) -> shardRouter.shard(shard).query(sql, rs -> {
+            result.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("user_id"));
+        }, (Object) ids.toArray(new Integer[0])));
+        return result;
+    }
+
+    // Считается в базе по каждому шарду без группировки, дешевле полного getLikeCounts()
+    public LikeChecksum getLikeChecksum() {
+        String sql = "SELECT COUNT(*) AS likes, COALESCE(SUM(CAST(film_id AS BIGINT)), 0) AS id_sum, " +
+                "COALESCE(SUM(CAST(film_id AS BIGINT) * film_id), 0) AS id_square_sum FROM film_likes";
+        LikeChecksum total = new LikeChecksum(0, 0, 0);
+        for (JdbcTemplate shard : shardRouter.all()) {
+            total = total.plus(shard.queryForObject(sql, (rs, rowNum) -> new LikeChecksum(
+                    rs.getLong("likes"), rs.getLong("id_sum"), rs.getLong("id_square_sum"))));
+        }
+        return total;
+    }
+
+    private LikeCursor mapRowToCursor(ResultSet rs, int rowNum) throws SQLException {
+        return new LikeCursor(rs.getObject("created_at", LocalDateTime.class), rs.getInt("liked_id"));
+    }
+
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        film.setName(rs.getString("title"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getInt("version"));
+
+        film.setMpa(referenceDataCache.getMpa(rs.getInt("mpa_id")));
+
+        return film;
+    }
+}
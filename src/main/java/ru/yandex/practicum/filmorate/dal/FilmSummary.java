@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import java.time.LocalDate;
+
+// Строка денормализованной таблицы film_summary. genreIds - id жанров по возрастанию через запятую
+public record FilmSummary(int filmId, String title, String description, LocalDate releaseDate, int duration,
+                          int mpaId, String mpaName, String genreIds, int likesCount, int version) {
+}
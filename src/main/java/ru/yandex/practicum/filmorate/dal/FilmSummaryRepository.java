@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Денормализованная сводка фильмов для списков: фильм, название MPA, id жанров и число лайков в одной строке,
+// поэтому GET /films и GET /films/popular читают одну таблицу без соединений и догрузки жанров.
+// Сводка обновляется в тех же транзакциях, что и фильмы и лайки; расхождения исправляет FilmSummaryChecker.
+// Таблица хранится в основной базе, в том числе при шардировании лайков.
+@Repository
+@RequiredArgsConstructor
+public class FilmSummaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+
+    public List<Film> getAllFilms() {
+        return getAllFilms(FilmField.DEFAULT);
+    }
+
+    // Читаются только столбцы выбранных полей, жанры разбираются, только если они запрошены
+    public List<Film> getAllFilms(Set<FilmField> fields) {
+        return jdbcTemplate.query(projection(fields) + " ORDER BY film_id", (rs, rowNum) -> mapRowToFilm(rs, fields));
+    }
+
+    // Индекс (likes_count DESC, film_id): читаются только первые count строк
+    public List<Film> getPopularFilms(int count) {
+        String sql = "SELECT * FROM film_summary ORDER BY likes_count DESC, film_id LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRowToFilm, count);
+    }
+
+    // Популярные фильмы одного жанра или рейтинга (задается не больше одного фильтра): для MPA - по индексу
+    // (mpa_id, likes_count DESC, film_id), для жанра - фильмы жанра по индексу film_genres(genre_id)
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId) {
+        if (genreId != null) {
+            String sql = "SELECT s.* FROM film_summary s JOIN film_genres fg ON fg.film_id = s.film_id " +
+                    "WHERE fg.genre_id = ? ORDER BY s.likes_count DESC, s.film_id LIMIT ?";
+            return jdbcTemplate.query(sql, this::mapRowToFilm, genreId, count);
+        }
+        if (mpaId != null) {
+            String sql = "SELECT * FROM film_summary WHERE mpa_id = ? ORDER BY likes_count DESC, film_id LIMIT ?";
+            return jdbcTemplate.query(sql, this::mapRowToFilm, mpaId, count);
+        }
+        return getPopularFilms(count);
+    }
+
+    public Map<Integer, FilmSummary> getSummaries() {
+        Map<Integer, FilmSummary> result = new HashMap<>();
+        jdbcTemplate.query("SELECT * FROM film_summary", rs -> {
+            FilmSummary summary = mapRowToSummary(rs);
+            result.put(summary.filmId(), summary);
+        });
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT film_id FROM film_summary LIMIT 1", Integer.class).isEmpty();
+    }
+
+    public void filmAdded(Film film) {
+        insert(summaryOf(film, 0));
+    }
+
+    // Число лайков не меняется; если строки еще нет, ее добавит проверка сводки
+    public void filmUpdated(Film film) {
+        FilmSummary summary = summaryOf(film, 0);
+        String sql = "UPDATE film_summary SET title = ?, description = ?, release_date = ?, duration = ?, " +
+                "mpa_id = ?, mpa_name = ?, genre_ids = ?, version = ? WHERE film_id = ?";
+        jdbcTemplate.update(sql, summary.title(), summary.description(), summary.releaseDate(), summary.duration(),
+                summary.mpaId(), summary.mpaName(), summary.genreIds(), summary.version(), summary.filmId());
+    }
+
+    public void likesChanged(int filmId, int delta) {
+        jdbcTemplate.update("UPDATE film_summary SET likes_count = likes_count + ? WHERE film_id = ?", delta, filmId);
+    }
+
+    public void insert(FilmSummary summary) {
+        String sql = "INSERT INTO film_summary (film_id, title, description, release_date, duration, mpa_id, " +
+                "mpa_name, genre_ids, likes_count, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(sql, summary.filmId(), summary.title(), summary.description(), summary.releaseDate(),
+                summary.duration(), summary.mpaId(), summary.mpaName(), summary.genreIds(), summary.likesCount(),
+                summary.version());
+    }
+
+    // Заменяет строку, только если она не изменилась с момента чтения (те же версия фильма и число лайков):
+    // иначе ее успела обновить запись фильма или лайка, и исправление отложится до следующей проверки
+    public boolean replace(FilmSummary stored, FilmSummary expected) {
+        String sql = "UPDATE film_summary SET title = ?, description = ?, release_date = ?, duration = ?, " +
+                "mpa_id = ?, mpa_name = ?, genre_ids = ?, likes_count = ?, version = ? " +
+                "WHERE film_id = ? AND version = ? AND likes_count = ?";
+        return jdbcTemplate.update(sql, expected.title(), expected.description(), expected.releaseDate(),
+                expected.duration(), expected.mpaId(), expected.mpaName(), expected.genreIds(), expected.likesCount(),
+                expected.version(), stored.filmId(), stored.version(), stored.likesCount()) > 0;
+    }
+
+    public FilmSummary summaryOf(Film film, int likesCount) {
+        int mpaId = film.getMpa().getId();
+        String genreIds = film.getGenres() == null ? "" : film.getGenres().stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        return new FilmSummary(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), mpaId, referenceDataCache.getMpa(mpaId).getName(), genreIds, likesCount,
+                film.getVersion() == null ? 0 : film.getVersion());
+    }
+
+    private FilmSummary mapRowToSummary(ResultSet rs) throws SQLException {
+        return new FilmSummary(
+                rs.getInt("film_id"),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getDate("release_date").toLocalDate(),
+                rs.getInt("duration"),
+                rs.getInt("mpa_id"),
+                rs.getString("mpa_name"),
+                rs.getString("genre_ids"),
+                rs.getInt("likes_count"),
+                rs.getInt("version"));
+    }
+
+    private static String projection(Set<FilmField> fields) {
+        StringBuilder columns = new StringBuilder("film_id");
+        for (FilmField field : fields) {
+            switch (field) {
+                case NAME -> columns.append(", title");
+                case DESCRIPTION -> columns.append(", description");
+                case RELEASE_DATE -> columns.append(", release_date");
+                case DURATION -> columns.append(", duration");
+                case MPA -> columns.append(", mpa_id");
+                case GENRES -> columns.append(", genre_ids");
+                case VERSION -> columns.append(", version");
+                default -> {
+                }
+            }
+        }
+        return "SELECT " + columns + " FROM film_summary";
+    }
+
+    private Film mapRowToFilm(ResultSet rs, Set<FilmField> fields) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        if (fields.contains(FilmField.NAME)) {
+            film.setName(rs.getString("title"));
+        }
+        if (fields.contains(FilmField.DESCRIPTION)) {
+            film.setDescription(rs.getString("description"));
+        }
+        if (fields.contains(FilmField.RELEASE_DATE)) {
+            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        }
+        if (fields.contains(FilmField.DURATION)) {
+            film.setDuration(rs.getInt("duration"));
+        }
+        if (fields.contains(FilmField.MPA)) {
+            film.setMpa(referenceDataCache.getMpa(rs.getInt("mpa_id")));
+        }
+        if (fields.contains(FilmField.GENRES)) {
+            film.setGenres(unpackGenres(rs.getString("genre_ids")));
+        }
+        if (fields.contains(FilmField.VERSION)) {
+            film.setVersion(rs.getInt("version"));
+        }
+        return film;
+    }
+
+    // MPA и жанры - общие экземпляры из справочника, как и в остальных чтениях фильмов
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        film.setName(rs.getString("title"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getInt("version"));
+        film.setMpa(referenceDataCache.getMpa(rs.getInt("mpa_id")));
+        film.setGenres(unpackGenres(rs.getString("genre_ids")));
+        return film;
+    }
+
+    private Set<Genre> unpackGenres(String genreIds) {
+        if (genreIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Genre> genres = new LinkedHashSet<>();
+        int start = 0;
+        while (start < genreIds.length()) {
+            int end = genreIds.indexOf(',', start);
+            if (end < 0) {
+                end = genreIds.length();
+            }
+            genres.add(referenceDataCache.getGenre(Integer.parseInt(genreIds, start, end, 10)));
+            start = end + 1;
+        }
+        return genres;
+    }
+}
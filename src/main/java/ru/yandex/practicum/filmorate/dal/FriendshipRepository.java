@@ -1,73 +1,120 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+// Дружба шардируется по user_id: все исходящие связи пользователя лежат в одном шарде
 @Repository
 @RequiredArgsConstructor
 public class FriendshipRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final SqlDialect sqlDialect;
 
     public void addFriend(int userId, int friendId) {
-        String checkSql = "SELECT COUNT(*) FROM friendships WHERE user_id = ? AND friend_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId, friendId);
+        String sql = sqlDialect.insertIgnoringDuplicates("friendships",
+                List.of("user_id", "friend_id"), List.of("user_id", "friend_id", "status_id"));
+        int inserted = shardRouter.forKey(userId).update(sql, userId, friendId, 2);
 
-        if (count != null && count > 0) {
+        if (inserted == 0) {
             throw new ValidationException("Пользователь уже в друзьях");
         }
-
-        String sql = "INSERT INTO friendships (user_id, friend_id, status_id) VALUES (?, ?, 2)";
-        jdbcTemplate.update(sql, userId, friendId);
     }
 
     public void removeFriend(int userId, int friendId) {
         String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        shardRouter.forKey(userId).update(sql, userId, friendId);
     }
 
     public List<User> getFriends(int userId) {
-        String sql = "SELECT u.* FROM friendships f " +
-                "JOIN users u ON f.friend_id = u.user_id " +
-                "WHERE f.user_id = ? AND f.status_id = 2";
+        if (shardRouter.isSingleShard()) {
+            String sql = "SELECT u.* FROM friendships f " +
+                    "JOIN users u ON f.friend_id = u.user_id " +
+                    "WHERE f.user_id = ? AND f.status_id = 2";
+
+            return shardRouter.primary().query(sql, this::mapRowToUser, userId);
+        }
 
-        return jdbcTemplate.query(sql, this::mapRowToUser, userId);
+        return getUsersByIds(getFriendIds(userId));
     }
 
     public List<User> getCommonFriends(int userId, int otherUserId) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendships f1 ON u.user_id = f1.friend_id " +
-                "JOIN friendships f2 ON u.user_id = f2.friend_id " +
-                "WHERE f1.user_id = ? AND f2.user_id = ? " +
-                "AND f1.status_id = 2 AND f2.status_id = 2";
+        if (shardRouter.isSingleShard()) {
+            String sql = "SELECT u.* FROM users u " +
+                    "JOIN friendships f1 ON u.user_id = f1.friend_id " +
+                    "JOIN friendships f2 ON u.user_id = f2.friend_id " +
+                    "WHERE f1.user_id = ? AND f2.user_id = ? " +
+                    "AND f1.status_id = 2 AND f2.status_id = 2";
+
+            return shardRouter.primary().query(sql, this::mapRowToUser, userId, otherUserId);
+        }
 
-        return jdbcTemplate.query(sql, this::mapRowToUser, userId, otherUserId);
+        // Пользователи могут лежать в разных шардах, поэтому пересечение считается в памяти
+        Set<Integer> commonIds = new HashSet<>(getFriendIds(userId));
+        commonIds.retainAll(getFriendIds(otherUserId));
+        return getUsersByIds(commonIds);
     }
 
+    // Подтверждение меняет строку запроса в шарде запросившего и добавляет обратную связь в шард пользователя.
+    // Изменения в дополнительных шардах отменяются, если транзакция основной базы откатится
     public void confirmFriend(int userId, int friendId) {
         String checkSql = "SELECT status_id FROM friendships WHERE user_id = ? AND friend_id = ?";
+        JdbcTemplate requesterShard = shardRouter.forKey(friendId);
+        Integer status;
         try {
-            Integer status = jdbcTemplate.queryForObject(checkSql, Integer.class, friendId, userId);
+            status = requesterShard.queryForObject(checkSql, Integer.class, friendId, userId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ValidationException("Запрос на дружбу не найден");
+        }
+        if (status == null || status != 1) {
+            throw new ValidationException("Запрос на дружбу не найден");
+        }
 
-            if (status == null || status != 1) {
-                throw new ValidationException("Запрос на дружбу не найден");
-            }
+        String updateSql = "UPDATE friendships SET status_id = 2, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE user_id = ? AND friend_id = ? AND status_id = 1";
+        if (requesterShard.update(updateSql, friendId, userId) == 0) {
+            throw new ValidationException("Запрос на дружбу не найден");
+        }
+        if (requesterShard != shardRouter.primary()) {
+            ShardTransactions.onRollback("подтверждение дружбы", () -> requesterShard.update(
+                    "UPDATE friendships SET status_id = 1 WHERE user_id = ? AND friend_id = ?", friendId, userId));
+        }
 
-            String updateSql = "UPDATE friendships SET status_id = 2 WHERE user_id = ? AND friend_id = ?";
-            jdbcTemplate.update(updateSql, friendId, userId);
+        JdbcTemplate userShard = shardRouter.forKey(userId);
+        String insertSql = "INSERT INTO friendships (user_id, friend_id, status_id) VALUES (?, ?, 2)";
+        try {
+            userShard.update(insertSql, userId, friendId);
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException("Пользователь уже в друзьях");
+        }
+        if (userShard != shardRouter.primary()) {
+            ShardTransactions.onRollback("подтверждение дружбы", () -> userShard.update(
+                    "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?", userId, friendId));
+        }
+    }
 
-            String insertSql = "INSERT INTO friendships (user_id, friend_id, status_id) VALUES (?, ?, 2)";
-            jdbcTemplate.update(insertSql, userId, friendId);
+    private List<Integer> getFriendIds(int userId) {
+        String sql = "SELECT friend_id FROM friendships WHERE user_id = ? AND status_id = 2";
+        return shardRouter.forKey(userId).queryForList(sql, Integer.class, userId);
+    }
 
-        } catch (Exception e) {
-            throw new ValidationException("Запрос на дружбу не найден");
+    private List<User> getUsersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?) ORDER BY user_id";
+        return shardRouter.primary().query(sql, this::mapRowToUser, (Object) ids.toArray(new Integer[0]));
     }
 
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
@@ -13,20 +13,57 @@ import java.util.stream.Collectors;
 public class GenreRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
-    public void saveFilmGenres(int filmId, Set<Genre> genres) {
-        String deleteSql = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(deleteSql, filmId);
+    // Жанры только что созданного фильма: сохраненных жанров у него нет, поэтому достаточно одной пакетной вставки
+    public void insertFilmGenres(int filmId, Set<Genre> genres) {
+        if (genres == null || genres.isEmpty()) {
+            return;
+        }
 
-        if (genres != null && !genres.isEmpty()) {
-            String insertSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        String insertSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Genre genre : genres) {
+            batchArgs.add(new Object[]{filmId, genre.getId()});
+        }
+        jdbcTemplate.batchUpdate(insertSql, batchArgs);
+    }
 
-            List<Object[]> batchArgs = new ArrayList<>();
+    // Приводит жанры фильма к переданному набору, выполняя только необходимые удаления и вставки.
+    // Если набор не изменился, в базу ничего не пишется.
+    public void saveFilmGenres(int filmId, Set<Genre> genres) {
+        Set<Integer> requested = new HashSet<>();
+        if (genres != null) {
             for (Genre genre : genres) {
-                batchArgs.add(new Object[]{filmId, genre.getId()});
+                requested.add(genre.getId());
+            }
+        }
+
+        String selectSql = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+        Set<Integer> stored = new HashSet<>(jdbcTemplate.queryForList(selectSql, Integer.class, filmId));
+
+        List<Object[]> deleteArgs = new ArrayList<>();
+        for (Integer genreId : stored) {
+            if (!requested.contains(genreId)) {
+                deleteArgs.add(new Object[]{filmId, genreId});
             }
+        }
 
-            jdbcTemplate.batchUpdate(insertSql, batchArgs);
+        List<Object[]> insertArgs = new ArrayList<>();
+        for (Integer genreId : requested) {
+            if (!stored.contains(genreId)) {
+                insertArgs.add(new Object[]{filmId, genreId});
+            }
+        }
+
+        if (!deleteArgs.isEmpty()) {
+            String deleteSql = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+            jdbcTemplate.batchUpdate(deleteSql, deleteArgs);
+        }
+
+        if (!insertArgs.isEmpty()) {
+            String insertSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(insertSql, insertArgs);
         }
     }
 
@@ -39,21 +76,18 @@ public class GenreRepository {
                 .map(Film::getId)
                 .collect(Collectors.toList());
 
-        String placeholders = String.join(",", Collections.nCopies(filmIds.size(), "?"));
-        String sql = "SELECT fg.film_id, g.genre_id, g.name " +
-                "FROM film_genres fg " +
-                "JOIN genres g ON fg.genre_id = g.genre_id " +
-                "WHERE fg.film_id IN (" + placeholders + ")";
+        // Названия жанров не читаются: экземпляры берутся из справочника по genre_id
+        String sql = "SELECT film_id, genre_id FROM film_genres WHERE film_id = ANY(?)";
 
-        Map<Integer, Set<Genre>> filmGenresMap = jdbcTemplate.query(sql, filmIds.toArray(), rs -> {
+        Map<Integer, Set<Genre>> filmGenresMap = jdbcTemplate.query(sql, rs -> {
             Map<Integer, Set<Genre>> result = new HashMap<>();
             while (rs.next()) {
                 int filmId = rs.getInt("film_id");
-                Genre genre = new Genre(rs.getInt("genre_id"), rs.getString("name"));
+                Genre genre = referenceDataCache.getGenre(rs.getInt("genre_id"));
                 result.computeIfAbsent(filmId, k -> new HashSet<>()).add(genre);
             }
             return result;
-        });
+        }, (Object) filmIds.toArray(new Integer[0]));
 
         for (Film film : films) {
             Set<Genre> genres = filmGenresMap.getOrDefault(film.getId(), Collections.emptySet());
@@ -70,9 +104,8 @@ public class GenreRepository {
             return true;
         }
 
-        String placeholders = String.join(",", Collections.nCopies(genreIds.size(), "?"));
-        String sql = "SELECT COUNT(*) FROM genres WHERE genre_id IN (" + placeholders + ")";
-        Integer count = jdbcTemplate.queryForObject(sql, genreIds.toArray(), Integer.class);
+        String sql = "SELECT COUNT(*) FROM genres WHERE genre_id = ANY(?)";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, (Object) genreIds.toArray(new Integer[0]));
 
         return count != null && count == genreIds.size();
     }
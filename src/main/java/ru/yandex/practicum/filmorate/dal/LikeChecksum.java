@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import java.util.Map;
+
+// Контрольная сумма лайков по фильмам: число лайков и суммы id и квадратов id фильма по всем лайкам.
+// Совпадает у индекса и базы, только если (почти наверняка) совпадает число лайков каждого фильма
+public record LikeChecksum(long likes, long filmIdSum, long filmIdSquareSum) {
+
+    public static LikeChecksum of(Map<Integer, Integer> likeCounts) {
+        long likes = 0;
+        long filmIdSum = 0;
+        long filmIdSquareSum = 0;
+        for (Map.Entry<Integer, Integer> entry : likeCounts.entrySet()) {
+            long filmId = entry.getKey();
+            likes += entry.getValue();
+            filmIdSum += filmId * entry.getValue();
+            filmIdSquareSum += filmId * filmId * entry.getValue();
+        }
+        return new LikeChecksum(likes, filmIdSum, filmIdSquareSum);
+    }
+
+    LikeChecksum plus(LikeChecksum other) {
+        return new LikeChecksum(likes + other.likes, filmIdSum + other.filmIdSum,
+                filmIdSquareSum + other.filmIdSquareSum);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import ru.yandex.practicum.filmorate.model.EventType;
+
+// Событие из event_outbox, еще не перенесенное в журнал; timestamp - время изменения в мс
+public record OutboxEvent(long id, EventType type, long timestamp, Integer filmId, Integer userId,
+                          Integer friendId) {
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+// Справочники MPA и жанров в памяти, перечитываемые из БД при обращении к неизвестному id
+@Slf4j
+@Component
+public class ReferenceDataCache {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long minReloadIntervalMillis;
+    private final LongSupplier clock;
+    private volatile References references;
+
+    @Autowired
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate,
+                              @Value("${filmorate.references.min-reload-interval-ms:1000}")
+                              long minReloadIntervalMillis) {
+        this(jdbcTemplate, minReloadIntervalMillis, System::currentTimeMillis);
+    }
+
+    ReferenceDataCache(JdbcTemplate jdbcTemplate, long minReloadIntervalMillis, LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minReloadIntervalMillis = minReloadIntervalMillis;
+        this.clock = clock;
+    }
+
+    public MpaRating getMpa(int mpaId) {
+        MpaRating mpa = references().mpaRatings().get(mpaId);
+        if (mpa == null) {
+            mpa = reloadAfterMiss().mpaRatings().get(mpaId);
+        }
+        return mpa;
+    }
+
+    public Genre getGenre(int genreId) {
+        Genre genre = references().genres().get(genreId);
+        if (genre == null) {
+            genre = reloadAfterMiss().genres().get(genreId);
+        }
+        return genre;
+    }
+
+    public boolean containsAllGenres(Set<Integer> genreIds) {
+        if (references().genres().keySet().containsAll(genreIds)) {
+            return true;
+        }
+        return reloadAfterMiss().genres().keySet().containsAll(genreIds);
+    }
+
+    public synchronized void reload() {
+        Map<Integer, MpaRating> loadedMpa = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT mpa_id, name FROM mpa_ratings ORDER BY mpa_id", rs -> {
+            loadedMpa.put(rs.getInt("mpa_id"), new MpaRating(rs.getInt("mpa_id"), rs.getString("name")));
+        });
+
+        Map<Integer, Genre> loadedGenres = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT genre_id, name FROM genres ORDER BY genre_id", rs -> {
+            loadedGenres.put(rs.getInt("genre_id"), new Genre(rs.getInt("genre_id"), rs.getString("name")));
+        });
+
+        references = new References(Collections.unmodifiableMap(loadedMpa),
+                Collections.unmodifiableMap(loadedGenres), clock.getAsLong());
+        log.debug("Справочники загружены: {} MPA рейтингов, {} жанров", loadedMpa.size(), loadedGenres.size());
+    }
+
+    // Перечитывает справочники, если с прошлой загрузки прошло не меньше min-reload-interval; иначе (и если
+    // справочники уже перечитал другой поток, пока этот ждал блокировку) отвечает по текущим данным
+    private References reloadAfterMiss() {
+        References current = references;
+        if (clock.getAsLong() - current.loadedAt() < minReloadIntervalMillis) {
+            return current;
+        }
+        synchronized (this) {
+            if (references == current) {
+                reload();
+            }
+            return references;
+        }
+    }
+
+    private References references() {
+        References current = references;
+        if (current == null) {
+            synchronized (this) {
+                if (references == null) {
+                    reload();
+                }
+                current = references;
+            }
+        }
+        return current;
+    }
+
+    private record References(Map<Integer, MpaRating> mpaRatings, Map<Integer, Genre> genres, long loadedAt) {
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.Map;
+
+// Перенос строк в шарды, которым они принадлежат после изменения списка шардов.
+// Строки переносятся группами по ключу шардирования: вставка в целевой шард, затем удаление из исходного.
+// Запускать при остановленной записи: лайки и дружба, добавленные во время переноса, могут остаться на старом шарде.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShardRebalancer implements ApplicationRunner {
+
+    private static final List<ShardedTable> TABLES = List.of(
+            new ShardedTable("film_likes", "film_id",
+                    List.of("film_id", "user_id"), List.of("film_id", "user_id", "created_at")),
+            new ShardedTable("friendships", "user_id",
+                    List.of("user_id", "friend_id"),
+                    List.of("user_id", "friend_id", "status_id", "created_at", "updated_at")));
+
+    private final ShardRouter shardRouter;
+    private final SqlDialect sqlDialect;
+
+    @Value("${filmorate.sharding.rebalance-on-startup:false}")
+    private boolean rebalanceOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebalanceOnStartup && !shardRouter.isSingleShard()) {
+            rebalance();
+        }
+    }
+
+    public int rebalance() {
+        int moved = 0;
+        for (ShardedTable table : TABLES) {
+            for (int source = 0; source < shardRouter.shardCount(); source++) {
+                moved += rebalanceShard(table, source);
+            }
+        }
+        log.info("Перенесено {} строк между шардами", moved);
+        return moved;
+    }
+
+    private int rebalanceShard(ShardedTable table, int source) {
+        JdbcTemplate sourceShard = shardRouter.shard(source);
+        List<Integer> keys = sourceShard.queryForList(
+                "SELECT DISTINCT " + table.shardKey() + " FROM " + table.name(), Integer.class);
+
+        String selectSql = "SELECT " + String.join(", ", table.columns()) + " FROM " + table.name() +
+                " WHERE " + table.shardKey() + " = ?";
+        String insertSql = sqlDialect.insertIgnoringDuplicates(table.name(), table.primaryKey(), table.columns());
+        String deleteSql = "DELETE FROM " + table.name() + " WHERE " + table.shardKey() + " = ?";
+
+        int moved = 0;
+        for (Integer key : keys) {
+            int target = shardRouter.shardIndexFor(key);
+            if (target == source) {
+                continue;
+            }
+            List<Object[]> rows = sourceShard.queryForList(selectSql, key).stream()
+                    .map(row -> rowValues(row, table.columns()))
+                    .toList();
+            shardRouter.shard(target).batchUpdate(insertSql, rows);
+            sourceShard.update(deleteSql, key);
+            moved += rows.size();
+        }
+        if (moved > 0) {
+            log.info("Из шарда {} таблицы {} перенесено {} строк", source, table.name(), moved);
+        }
+        return moved;
+    }
+
+    private Object[] rowValues(Map<String, Object> row, List<String> columns) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            values[i] = row.get(columns.get(i));
+        }
+        return values;
+    }
+
+    private record ShardedTable(String name, String shardKey, List<String> primaryKey, List<String> columns) {
+    }
+}
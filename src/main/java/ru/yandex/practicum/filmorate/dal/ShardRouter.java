@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.util.List;
+
+// Выбор шарда для таблиц film_likes (ключ film_id) и friendships (ключ user_id).
+// Шард 0 - основная база со всеми остальными таблицами, в ней же выполняются join-ы с films и users.
+public class ShardRouter {
+
+    private final List<JdbcTemplate> shards;
+
+    public ShardRouter(List<JdbcTemplate> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один шард");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    public boolean isSingleShard() {
+        return shards.size() == 1;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public JdbcTemplate primary() {
+        return shards.get(0);
+    }
+
+    public JdbcTemplate shard(int index) {
+        return shards.get(index);
+    }
+
+    public List<JdbcTemplate> all() {
+        return shards;
+    }
+
+    public JdbcTemplate forKey(int key) {
+        return shards.get(shardIndex(key, shards.size()));
+    }
+
+    public int shardIndexFor(int key) {
+        return shardIndex(key, shards.size());
+    }
+
+    // Перемешивание битов (финализатор murmur3), чтобы последовательные id равномерно расходились по шардам
+    static int shardIndex(int key, int shardCount) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, shardCount);
+    }
+}
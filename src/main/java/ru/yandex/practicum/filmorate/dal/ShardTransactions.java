@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Дополнительные шарды не участвуют в транзакции основной базы: их изменения отменяются отдельным запросом
+// после отката. Без активной транзакции откатывать нечего
+@Slf4j
+final class ShardTransactions {
+
+    private ShardTransactions() {
+    }
+
+    static void onRollback(String change, Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    compensation.run();
+                } catch (RuntimeException e) {
+                    log.error("Не удалось отменить {} в шарде после отката транзакции", change, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Различия SQL между поддерживаемыми базами. Остальные запросы в репозиториях написаны так,
+// чтобы выполняться без изменений и в H2, и в PostgreSQL (списки id передаются массивом через "= ANY(?)").
+public enum SqlDialect {
+    H2 {
+        @Override
+        public String insertIgnoringDuplicates(String table, List<String> keyColumns, List<String> columns) {
+            String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+            String sourceColumns = String.join(", ", columns);
+            String match = keyColumns.stream()
+                    .map(column -> "t." + column + " = s." + column)
+                    .collect(Collectors.joining(" AND "));
+            String values = columns.stream().map(column -> "s." + column).collect(Collectors.joining(", "));
+            return "MERGE INTO " + table + " t USING (VALUES (" + placeholders + ")) s (" + sourceColumns + ") " +
+                    "ON " + match + " WHEN NOT MATCHED THEN INSERT (" + sourceColumns + ") VALUES (" + values + ")";
+        }
+    },
+    POSTGRESQL {
+        // Конфликт без списка столбцов: в таблицах связей единственное ограничение уникальности - первичный ключ
+        @Override
+        public String insertIgnoringDuplicates(String table, List<String> keyColumns, List<String> columns) {
+            String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ") " +
+                    "ON CONFLICT DO NOTHING";
+        }
+    };
+
+    // INSERT, который не вставляет строку, если запись с таким ключом уже есть.
+    // Возвращаемое число измененных строк 0 означает дубликат.
+    public abstract String insertIgnoringDuplicates(String table, List<String> keyColumns, List<String> columns);
+
+    public static SqlDialect fromDatabaseProductName(String productName) {
+        if (productName != null && productName.toLowerCase().contains("postgres")) {
+            return POSTGRESQL;
+        }
+        return H2;
+    }
+}
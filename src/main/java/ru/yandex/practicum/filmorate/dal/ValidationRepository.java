@@ -1,23 +1,20 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import java.util.Collections;
 import java.util.Set;
 
 
+// Проверки выполняются по закешированным справочникам, без обращения к БД в обычном случае
 @Repository
 @RequiredArgsConstructor
 public class ValidationRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
     public void validateMpaExists(int mpaId) {
-        String sql = "SELECT COUNT(*) FROM mpa_ratings WHERE mpa_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, mpaId);
-        if (count == null || count == 0) {
+        if (referenceDataCache.getMpa(mpaId) == null) {
             throw new NotFoundException("MPA рейтинг с id " + mpaId + " не найден");
         }
     }
@@ -27,12 +24,8 @@ public class ValidationRepository {
             return;
         }
 
-        String placeholders = String.join(",", Collections.nCopies(genreIds.size(), "?"));
-        String sql = "SELECT COUNT(*) FROM genres WHERE genre_id IN (" + placeholders + ")";
-        Integer count = jdbcTemplate.queryForObject(sql, genreIds.toArray(), Integer.class);
-
-        if (count == null || count != genreIds.size()) {
+        if (!referenceDataCache.containsAllGenres(genreIds)) {
             throw new NotFoundException("Некоторые жанры не найдены");
         }
     }
-}
\ No newline at end of file
+}
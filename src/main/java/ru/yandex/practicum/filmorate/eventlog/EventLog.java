@@ -0,0 +1,412 @@
+package ru.yandex.practicum.filmorate.eventlog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FilmorateEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Упорядоченный журнал изменений в файлах сегментов с записями фиксированной длины
+@Slf4j
+@Component
+public class EventLog implements MeterBinder, HealthIndicator {
+
+    static final int RECORD_SIZE = 33;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - Integer.BYTES;
+    private static final int MAX_BATCH = 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("\\d{20}\\.log");
+    private static final EventType[] TYPES = EventType.values();
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final boolean fsync;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Pending> queue;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(MAX_BATCH * RECORD_SIZE);
+    private final CRC32 writeCrc = new CRC32();
+    private final LongAdder failures = new LongAdder();
+    private final Thread writer;
+
+    private FileChannel activeChannel;
+    private volatile long nextOffset;
+    private volatile boolean running = true;
+    private volatile IOException lastFailure;
+
+    @Autowired
+    public EventLog(@Value("${filmorate.events.dir:./db/events}") Path directory,
+                    @Value("${filmorate.events.segment-records:1000000}") int recordsPerSegment,
+                    @Value("${filmorate.events.fsync:true}") boolean fsync,
+                    @Value("${filmorate.events.queue-capacity:65536}") int queueCapacity) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.fsync = fsync;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал событий " + directory, e);
+        }
+        writer = new Thread(this::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public EventLog(Path directory, int recordsPerSegment, boolean fsync) {
+        this(directory, recordsPerSegment, fsync, 65536);
+    }
+
+    // Номер, который получит следующее событие; события с меньшими номерами уже записаны и доступны для чтения
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    // Не ждет диск: future завершается номером события после fsync или исключением, если пачку записать
+    // не удалось; ошибка учитывается в метрике filmorate.events.append.failures и переводит health в DOWN.
+    // Изменения данных пишут события через event_outbox, сюда их переносит EventOutboxRelay.
+    // Если очередь заполнена (диск не успевает), вызов ждет место в ней
+    public CompletableFuture<Long> append(EventType type, Integer filmId, Integer userId, Integer friendId) {
+        return append(type, System.currentTimeMillis(), filmId, userId, friendId);
+    }
+
+    CompletableFuture<Long> append(EventType type, long timestamp, Integer filmId, Integer userId,
+                                   Integer friendId) {
+        Pending pending = new Pending(type, timestamp, filmId, userId, friendId, new CompletableFuture<>());
+        if (!running) {
+            fail(List.of(pending), new IOException("Журнал событий закрыт"));
+            return pending.written;
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(List.of(pending), new IOException("Запись события прервана", e));
+        }
+        return pending.written;
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.events.append.failures", this, EventLog::getFailures)
+                .description("События, которые не удалось записать в журнал")
+                .register(registry);
+        Gauge.builder("filmorate.events.queue", queue, BlockingQueue::size)
+                .description("События, ожидающие записи в журнал")
+                .register(registry);
+    }
+
+    // DOWN, пока последняя пачка не записана: события копятся в event_outbox до восстановления записи
+    @Override
+    public Health health() {
+        IOException failure = lastFailure;
+        Health.Builder builder = failure == null && writer.isAlive() ? Health.up() : Health.down();
+        if (failure != null) {
+            builder.withDetail("error", failure.toString());
+        }
+        return builder.withDetail("nextOffset", nextOffset)
+                .withDetail("failures", getFailures())
+                .withDetail("queued", queue.size())
+                .build();
+    }
+
+    // Передает consumer события с номерами из [since, until) по порядку
+    public void read(long since, long until, Consumer<FilmorateEvent> consumer) {
+        long end = Math.min(until, nextOffset);
+        long offset = Math.max(since, firstOffset());
+        while (offset < end) {
+            Segment segment = segmentFor(offset);
+            long segmentEnd = Math.min(end, segment.baseOffset + recordsPerSegment);
+            ByteBuffer buffer = segment.map(segmentEnd);
+            for (; offset < segmentEnd; offset++) {
+                consumer.accept(decode(buffer, (int) ((offset - segment.baseOffset) * RECORD_SIZE)));
+            }
+        }
+    }
+
+    public long firstOffset() {
+        return segments.get(0).baseOffset;
+    }
+
+    // Дописывает события из очереди и закрывает сегмент
+    @PreDestroy
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (activeChannel != null && activeChannel.isOpen()) {
+                activeChannel.force(true);
+                activeChannel.close();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                fail(batch, new IOException(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Пачка пишется одной операцией на сегмент и фиксируется одним fsync; при ошибке номер следующего события
+    // не сдвигается, активный сегмент возвращается к нему, и следующая пачка перезаписывает те же позиции
+    private synchronized void writeBatch(List<Pending> batch) {
+        long offset = nextOffset;
+        try {
+            int index = 0;
+            while (index < batch.size()) {
+                Segment active = segments.get(segments.size() - 1);
+                if (offset - active.baseOffset >= recordsPerSegment) {
+                    active = roll(offset);
+                }
+                int count = (int) Math.min(batch.size() - index, active.baseOffset + recordsPerSegment - offset);
+                writeBuffer.clear();
+                for (int i = 0; i < count; i++) {
+                    encode(offset + i, batch.get(index + i));
+                }
+                writeBuffer.flip();
+
+                long position = (offset - active.baseOffset) * RECORD_SIZE;
+                while (writeBuffer.hasRemaining()) {
+                    position += activeChannel.write(writeBuffer, position);
+                }
+                offset += count;
+                index += count;
+            }
+            if (fsync) {
+                activeChannel.force(false);
+            }
+        } catch (IOException e) {
+            fail(batch, e);
+            resetActiveSegment();
+            return;
+        }
+
+        long first = nextOffset;
+        nextOffset = offset;
+        lastFailure = null;
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).written.complete(first + i);
+        }
+    }
+
+    // Сегменты, начатые неудачной пачкой после nextOffset, удаляются, а недописанные записи обрезаются:
+    // иначе позиция следующей пачки считалась бы от сегмента, начинающегося дальше nextOffset.
+    // Канал открывается заново, в том числе если его закрыл сбой при переходе на новый сегмент
+    private void resetActiveSegment() {
+        try {
+            if (activeChannel.isOpen()) {
+                activeChannel.close();
+            }
+            while (segments.size() > 1 && segments.get(segments.size() - 1).baseOffset > nextOffset) {
+                Files.deleteIfExists(segments.remove(segments.size() - 1).path);
+            }
+            Segment active = segments.get(segments.size() - 1);
+            activeChannel = FileChannel.open(active.path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            activeChannel.truncate((nextOffset - active.baseOffset) * RECORD_SIZE);
+        } catch (IOException e) {
+            log.error("Не удалось вернуть активный сегмент журнала к событию {}", nextOffset, e);
+        }
+    }
+
+    private void encode(long offset, Pending event) {
+        int start = writeBuffer.position();
+        writeBuffer.putLong(offset)
+                .putLong(event.timestamp)
+                .put((byte) event.type.ordinal())
+                .putInt(event.filmId == null ? 0 : event.filmId)
+                .putInt(event.userId == null ? 0 : event.userId)
+                .putInt(event.friendId == null ? 0 : event.friendId);
+        writeCrc.reset();
+        writeCrc.update(writeBuffer.array(), start, PAYLOAD_SIZE);
+        writeBuffer.putInt((int) writeCrc.getValue());
+    }
+
+    private void fail(List<Pending> batch, IOException e) {
+        lastFailure = e;
+        failures.add(batch.size());
+        log.error("Не удалось записать в журнал {} событий, первое - {}", batch.size(), batch.get(0).type, e);
+        batch.forEach(pending -> pending.written.completeExceptionally(e));
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+
+        if (files.isEmpty()) {
+            segments.add(new Segment(0, directory.resolve(segmentName(0))));
+        } else {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(new Segment(Long.parseLong(name.substring(0, name.indexOf('.'))), file));
+            }
+        }
+
+        Segment active = segments.get(segments.size() - 1);
+        activeChannel = FileChannel.open(active.path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long records = recoverTail(activeChannel);
+        nextOffset = active.baseOffset + records;
+        log.info("Журнал событий {}: {} сегмент(ов), следующее событие {}", directory, segments.size(), nextOffset);
+    }
+
+    // Отбрасывает недописанную или поврежденную запись в конце активного сегмента (например, после сбоя)
+    private long recoverTail(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long records = Math.min(size / RECORD_SIZE, recordsPerSegment);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        while (records > 0) {
+            record.clear();
+            channel.read(record, (records - 1) * RECORD_SIZE);
+            if (isValid(record.array())) {
+                break;
+            }
+            records--;
+        }
+        if (records * RECORD_SIZE != size) {
+            log.warn("Журнал событий: отброшено {} байт в конце сегмента", size - records * RECORD_SIZE);
+            channel.truncate(records * RECORD_SIZE);
+        }
+        return records;
+    }
+
+    private Segment roll(long baseOffset) throws IOException {
+        activeChannel.force(true);
+        activeChannel.close();
+        Segment segment = new Segment(baseOffset, directory.resolve(segmentName(baseOffset)));
+        activeChannel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.add(segment);
+        return segment;
+    }
+
+    private Segment segmentFor(long offset) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segments.get(mid).baseOffset <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return segments.get(low);
+    }
+
+    private static boolean isValid(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, PAYLOAD_SIZE);
+        return (int) crc.getValue() == ByteBuffer.wrap(record).getInt(PAYLOAD_SIZE);
+    }
+
+    private static FilmorateEvent decode(ByteBuffer buffer, int position) {
+        return new FilmorateEvent(
+                buffer.getLong(position),
+                TYPES[buffer.get(position + 16)],
+                Instant.ofEpochMilli(buffer.getLong(position + 8)),
+                idOrNull(buffer.getInt(position + 17)),
+                idOrNull(buffer.getInt(position + 21)),
+                idOrNull(buffer.getInt(position + 25)));
+    }
+
+    private static Integer idOrNull(int id) {
+        return id == 0 ? null : id;
+    }
+
+    private static String segmentName(long baseOffset) {
+        return String.format("%020d.log", baseOffset);
+    }
+
+    private record Pending(EventType type, long timestamp, Integer filmId, Integer userId, Integer friendId,
+                           CompletableFuture<Long> written) {
+    }
+
+    private final class Segment {
+        private final long baseOffset;
+        private final Path path;
+        private volatile MappedByteBuffer sealed;
+
+        private Segment(long baseOffset, Path path) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+        }
+
+        // Заполненный сегмент больше не меняется и отображается один раз,
+        // у активного отображается только уже записанная часть
+        private ByteBuffer map(long endOffset) {
+            try {
+                boolean full = endOffset - baseOffset >= recordsPerSegment;
+                if (full && sealed != null) {
+                    return sealed;
+                }
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                            (endOffset - baseOffset) * RECORD_SIZE);
+                    if (full) {
+                        sealed = buffer;
+                    }
+                    return buffer;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать сегмент журнала " + path, e);
+            }
+        }
+    }
+}
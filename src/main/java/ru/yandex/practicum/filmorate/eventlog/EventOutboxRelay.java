@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.eventlog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.EventOutboxRepository;
+import ru.yandex.practicum.filmorate.dal.OutboxEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Переносит события из event_outbox в журнал в порядке event_id, то есть в порядке фиксации для изменений
+// одних и тех же строк. Строки удаляются только после fsync журнала: сбой между записью и удалением
+// повторит события при следующем проходе, но не потеряет их. При ошибке записи удаляется только записанное
+// начало пачки, остальное переносится следующим проходом в том же порядке.
+@Slf4j
+@Component
+public class EventOutboxRelay {
+    private final EventOutboxRepository outbox;
+    private final EventLog eventLog;
+    private final int batchSize;
+
+    public EventOutboxRelay(EventOutboxRepository outbox, EventLog eventLog,
+                            @Value("${filmorate.events.relay-batch:1000}") int batchSize) {
+        this.outbox = outbox;
+        this.eventLog = eventLog;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.events.relay-interval-ms:100}")
+    public void scheduledRelay() {
+        relay();
+    }
+
+    // Возвращает число перенесенных событий
+    public synchronized int relay() {
+        List<OutboxEvent> events = outbox.findOldest(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Long>> written = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            written.add(eventLog.append(event.type(), event.timestamp(), event.filmId(), event.userId(),
+                    event.friendId()));
+        }
+        List<Long> relayed = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                written.get(i).join();
+            } catch (CompletionException e) {
+                // Ошибка уже учтена в метрике и health журнала
+                log.warn("Перенос событий в журнал прерван на событии {}", events.get(i).id());
+                break;
+            }
+            relayed.add(events.get(i).id());
+        }
+        outbox.delete(relayed);
+        return relayed.size();
+    }
+}
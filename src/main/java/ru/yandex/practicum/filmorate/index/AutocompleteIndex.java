@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import java.util.List;
+
+@Slf4j
+@Component
+public class AutocompleteIndex {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeCountIndex likeCountIndex;
+    private final PrefixIndex filmTitles = new PrefixIndex();
+    private final PrefixIndex userLogins = new PrefixIndex();
+
+    @Autowired
+    public AutocompleteIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                             @Qualifier("userDbStorage") UserStorage userStorage,
+                             LikeCountIndex likeCountIndex) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeCountIndex = likeCountIndex;
+    }
+
+    public void rebuild() {
+        List<Film> films = filmStorage.getAllFilms();
+        filmTitles.clear();
+        films.forEach(this::indexFilm);
+
+        List<User> users = userStorage.getAllUsers();
+        userLogins.clear();
+        users.forEach(this::indexUser);
+        log.info("Индекс автодополнения построен: {} фильмов, {} пользователей", films.size(), users.size());
+    }
+
+    public void restore(List<Suggestion> films, List<Suggestion> users) {
+        filmTitles.clear();
+        films.forEach(film -> filmTitles.put(film.getId(), film.getText()));
+        userLogins.clear();
+        users.forEach(user -> userLogins.put(user.getId(), user.getText()));
+    }
+
+    public List<Suggestion> exportFilmTitles() {
+        return filmTitles.entries();
+    }
+
+    public List<Suggestion> exportUserLogins() {
+        return userLogins.entries();
+    }
+
+    public int userCount() {
+        return userLogins.size();
+    }
+
+    public void indexFilm(Film film) {
+        filmTitles.put(film.getId(), film.getName());
+    }
+
+    public void indexUser(User user) {
+        userLogins.put(user.getId(), user.getLogin());
+    }
+
+    public List<Suggestion> suggestFilms(String prefix, int limit) {
+        return filmTitles.findTopByPrefix(prefix, limit, suggestion -> likeCountIndex.getLikes(suggestion.getId()));
+    }
+
+    public List<Suggestion> suggestUsers(String prefix, int limit) {
+        return userLogins.findByPrefix(prefix, limit);
+    }
+}
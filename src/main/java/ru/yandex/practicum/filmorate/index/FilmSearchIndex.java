@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Инвертированный индекс по названиям и описаниям фильмов.
+// Для каждого поля хранится словарь: слово -> (id фильма -> число вхождений).
+// Последнее слово запроса ищется по префиксу, остальные - точно; фильм должен содержать все слова запроса.
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private final FilmStorage filmStorage;
+    private final LikeCountIndex likeCountIndex;
+    private final Map<SearchField, ConcurrentNavigableMap<String, Map<Integer, Integer>>> terms =
+            new EnumMap<>(SearchField.class);
+    private final Map<Integer, Map<SearchField, List<String>>> indexedTokens = new ConcurrentHashMap<>();
+    // Версия фильма, по которой построены его слова: по ней индекс из снимка сверяется с базой
+    private final Map<Integer, Integer> indexedVersions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FilmSearchIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage, LikeCountIndex likeCountIndex) {
+        this.filmStorage = filmStorage;
+        this.likeCountIndex = likeCountIndex;
+        for (SearchField field : SearchField.values()) {
+            terms.put(field, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    public void rebuild() {
+        List<Film> films = filmStorage.getAllFilms();
+        synchronized (this) {
+            terms.values().forEach(Map::clear);
+            indexedTokens.clear();
+            indexedVersions.clear();
+            films.forEach(this::index);
+        }
+        log.info("Поисковый индекс фильмов построен: {} фильмов", films.size());
+    }
+
+    public synchronized void index(Film film) {
+        Map<SearchField, List<String>> tokens = new EnumMap<>(SearchField.class);
+        tokens.put(SearchField.TITLE, TextTokenizer.tokenize(film.getName()));
+        tokens.put(SearchField.DESCRIPTION, TextTokenizer.tokenize(film.getDescription()));
+        indexTokens(film.getId(), tokens);
+        indexedVersions.put(film.getId(), film.getVersion() == null ? 0 : film.getVersion());
+    }
+
+    // Восстановление из снимка: слова уже разобраны, токенизация не нужна
+    public synchronized void restore(Map<Integer, Map<SearchField, List<String>>> tokensByFilm,
+                                     Map<Integer, Integer> versions) {
+        terms.values().forEach(Map::clear);
+        indexedTokens.clear();
+        indexedVersions.clear();
+        tokensByFilm.forEach(this::indexTokens);
+        indexedVersions.putAll(versions);
+    }
+
+    public synchronized Map<Integer, Map<SearchField, List<String>>> exportTokens() {
+        return new HashMap<>(indexedTokens);
+    }
+
+    public synchronized Map<Integer, Integer> exportVersions() {
+        return new HashMap<>(indexedVersions);
+    }
+
+    public int size() {
+        return indexedTokens.size();
+    }
+
+    private void indexTokens(int filmId, Map<SearchField, List<String>> tokens) {
+        remove(filmId);
+
+        tokens.forEach((field, fieldTokens) -> {
+            for (String token : fieldTokens) {
+                terms.get(field)
+                        .computeIfAbsent(token, t -> new ConcurrentHashMap<>())
+                        .merge(filmId, 1, Integer::sum);
+            }
+        });
+        indexedTokens.put(filmId, tokens);
+    }
+
+    public synchronized void remove(int filmId) {
+        indexedVersions.remove(filmId);
+        Map<SearchField, List<String>> tokens = indexedTokens.remove(filmId);
+        if (tokens == null) {
+            return;
+        }
+
+        tokens.forEach((field, fieldTokens) -> {
+            for (String token : fieldTokens) {
+                terms.get(field).computeIfPresent(token, (t, postings) -> {
+                    postings.remove(filmId);
+                    return postings.isEmpty() ? null : postings;
+                });
+            }
+        });
+    }
+
+    // Возвращает id фильмов, отсортированные по релевантности, затем по числу лайков
+    public List<Integer> search(String query, Set<SearchField> fields, int limit) {
+        List<String> queryTokens = TextTokenizer.tokenize(query);
+        if (queryTokens.isEmpty() || fields.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, Integer> scores = null;
+        for (int i = 0; i < queryTokens.size(); i++) {
+            boolean prefix = i == queryTokens.size() - 1;
+            Map<Integer, Integer> tokenScores = scoreToken(queryTokens.get(i), fields, prefix);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((filmId, score) -> score + tokenScores.get(filmId));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Map<Integer, Integer> finalScores = scores;
+        return finalScores.keySet().stream()
+                .sorted(Comparator.<Integer>comparingInt(finalScores::get).reversed()
+                        .thenComparing(Comparator.<Integer>comparingInt(likeCountIndex::getLikes).reversed())
+                        .thenComparingInt(Integer::intValue))
+                .limit(limit)
+                .toList();
+    }
+
+    private Map<Integer, Integer> scoreToken(String token, Set<SearchField> fields, boolean prefix) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (SearchField field : fields) {
+            ConcurrentNavigableMap<String, Map<Integer, Integer>> fieldTerms = terms.get(field);
+            Map<String, Map<Integer, Integer>> matches = prefix
+                    ? fieldTerms.subMap(token, true, token + Character.MAX_VALUE, false)
+                    : singleTerm(fieldTerms, token);
+
+            matches.forEach((term, postings) -> {
+                // Точное совпадение слова весит больше, чем совпадение по префиксу
+                int weight = term.equals(token) ? field.getWeight() * 2 : field.getWeight();
+                postings.forEach((filmId, frequency) -> scores.merge(filmId, weight * frequency, Integer::sum));
+            });
+        }
+        return scores;
+    }
+
+    private Map<String, Map<Integer, Integer>> singleTerm(Map<String, Map<Integer, Integer>> fieldTerms, String token) {
+        Map<Integer, Integer> postings = fieldTerms.get(token);
+        return postings == null ? Map.of() : Map.of(token, postings);
+    }
+}
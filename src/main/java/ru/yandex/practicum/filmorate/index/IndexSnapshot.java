@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Двоичный снимок in-memory индексов и номер события журнала, на котором он сделан.
+// Формат: магическое число, версия формата, offset журнала, время создания,
+// секции лайков, слов поискового индекса, версий фильмов, названий фильмов и логинов, в конце CRC32 всего содержимого.
+// Строки - длина (int) и байты UTF-8.
+public record IndexSnapshot(long eventOffset,
+                            long createdAtMillis,
+                            Map<Integer, Integer> likeCounts,
+                            Map<Integer, Map<SearchField, List<String>>> searchTokens,
+                            Map<Integer, Integer> filmVersions,
+                            List<Suggestion> filmTitles,
+                            List<Suggestion> userLogins) {
+
+    private static final int MAGIC = 0x46534E50;
+    private static final int FORMAT_VERSION = 2;
+    private static final SearchField[] FIELDS = SearchField.values();
+
+    // Снимок пишется во временный файл и атомарно заменяет предыдущий,
+    // поэтому сбой во время записи не портит последний целый снимок
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temp);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(eventOffset);
+                out.writeLong(createdAtMillis);
+
+                writeCounts(out, likeCounts);
+
+                out.writeInt(searchTokens.size());
+                for (Map.Entry<Integer, Map<SearchField, List<String>>> entry : searchTokens.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    for (SearchField field : FIELDS) {
+                        List<String> tokens = entry.getValue().getOrDefault(field, List.of());
+                        out.writeInt(tokens.size());
+                        for (String token : tokens) {
+                            writeString(out, token);
+                        }
+                    }
+                }
+
+                writeCounts(out, filmVersions);
+                writeSuggestions(out, filmTitles);
+                writeSuggestions(out, userLogins);
+                out.flush();
+                // CRC дописывается в обход CheckedOutputStream
+                file.write(ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Пустой результат, если снимка нет, он поврежден или записан в другом формате
+    public static Optional<IndexSnapshot> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 * Integer.BYTES || size > Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int contentSize = (int) size - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, contentSize));
+            if ((int) crc.getValue() != buffer.getInt(contentSize)) {
+                return Optional.empty();
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            return Optional.of(decode(buffer));
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static IndexSnapshot decode(ByteBuffer buffer) {
+        long eventOffset = buffer.getLong();
+        long createdAtMillis = buffer.getLong();
+
+        Map<Integer, Integer> likeCounts = readCounts(buffer);
+
+        int filmCount = buffer.getInt();
+        Map<Integer, Map<SearchField, List<String>>> searchTokens = new HashMap<>(filmCount * 2);
+        for (int i = 0; i < filmCount; i++) {
+            int filmId = buffer.getInt();
+            Map<SearchField, List<String>> tokens = new EnumMap<>(SearchField.class);
+            for (SearchField field : FIELDS) {
+                int tokenCount = buffer.getInt();
+                List<String> fieldTokens = new ArrayList<>(tokenCount);
+                for (int j = 0; j < tokenCount; j++) {
+                    fieldTokens.add(readString(buffer));
+                }
+                tokens.put(field, fieldTokens);
+            }
+            searchTokens.put(filmId, tokens);
+        }
+
+        Map<Integer, Integer> filmVersions = readCounts(buffer);
+        List<Suggestion> filmTitles = readSuggestions(buffer);
+        List<Suggestion> userLogins = readSuggestions(buffer);
+        return new IndexSnapshot(eventOffset, createdAtMillis, likeCounts, searchTokens, filmVersions, filmTitles,
+                userLogins);
+    }
+
+    private static void writeCounts(DataOutputStream out, Map<Integer, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static Map<Integer, Integer> readCounts(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Map<Integer, Integer> counts = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            counts.put(buffer.getInt(), buffer.getInt());
+        }
+        return counts;
+    }
+
+    private static void writeSuggestions(DataOutputStream out, List<Suggestion> suggestions) throws IOException {
+        out.writeInt(suggestions.size());
+        for (Suggestion suggestion : suggestions) {
+            out.writeInt(suggestion.getId());
+            writeString(out, suggestion.getText());
+        }
+    }
+
+    private static List<Suggestion> readSuggestions(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<Suggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            suggestions.add(new Suggestion(buffer.getInt(), readString(buffer)));
+        }
+        return suggestions;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
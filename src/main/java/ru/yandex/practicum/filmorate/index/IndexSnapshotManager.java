@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.EntityCountRepository;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.LikeChecksum;
+import ru.yandex.practicum.filmorate.eventlog.EventLog;
+import ru.yandex.practicum.filmorate.eventlog.EventOutboxRelay;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmorateEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Прогрев индексов при старте: загрузка снимка и догрузка из базы только того, что изменилось после него
+// (список изменений берется из журнала событий). После догрузки индексы сверяются с базой: фильмы - по версиям
+// (изменившиеся перечитываются), лайки - по контрольной сумме, пользователи - по количеству.
+// Если снимка нет, он поврежден, журнал не покрывает период после снимка или сверка не сошлась,
+// индексы строятся из базы полностью. Снимок пишется периодически и при остановке приложения.
+@Slf4j
+@Component
+public class IndexSnapshotManager {
+    private final LikeCountIndex likeCountIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final EventLog eventLog;
+    private final EventOutboxRelay eventOutboxRelay;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmLikesRepository filmLikesRepository;
+    private final EntityCountRepository entityCountRepository;
+    private final Path snapshotPath;
+    private final boolean enabled;
+
+    @Autowired
+    public IndexSnapshotManager(LikeCountIndex likeCountIndex,
+                                FilmSearchIndex filmSearchIndex,
+                                AutocompleteIndex autocompleteIndex,
+                                EventLog eventLog,
+                                EventOutboxRelay eventOutboxRelay,
+                                @Qualifier("filmDbStorage") FilmStorage filmStorage,
+                                @Qualifier("userDbStorage") UserStorage userStorage,
+                                FilmLikesRepository filmLikesRepository,
+                                EntityCountRepository entityCountRepository,
+                                @Value("${filmorate.snapshot.path:./db/index.snapshot}") Path snapshotPath,
+                                @Value("${filmorate.snapshot.enabled:true}") boolean enabled) {
+        this.likeCountIndex = likeCountIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.eventLog = eventLog;
+        this.eventOutboxRelay = eventOutboxRelay;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.filmLikesRepository = filmLikesRepository;
+        this.entityCountRepository = entityCountRepository;
+        this.snapshotPath = snapshotPath;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        long started = System.nanoTime();
+        if (enabled && restoreFromSnapshot()) {
+            log.info("Индексы восстановлены из снимка за {} мс", (System.nanoTime() - started) / 1_000_000);
+            return;
+        }
+        rebuildAll();
+        log.info("Индексы построены из базы за {} мс", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.snapshot.interval-ms:300000}",
+            fixedDelayString = "${filmorate.snapshot.interval-ms:300000}")
+    public void scheduledSnapshot() {
+        if (enabled) {
+            writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        if (enabled) {
+            writeSnapshot();
+        }
+    }
+
+    // Offset берется до чтения индексов: индексы обновляются раньше записи события в журнал,
+    // поэтому все события до offset в снимке уже учтены, а более поздние будут догружены при старте
+    public void writeSnapshot() {
+        long started = System.nanoTime();
+        IndexSnapshot snapshot = new IndexSnapshot(
+                eventLog.getNextOffset(),
+                System.currentTimeMillis(),
+                likeCountIndex.exportCounts(),
+                filmSearchIndex.exportTokens(),
+                filmSearchIndex.exportVersions(),
+                autocompleteIndex.exportFilmTitles(),
+                autocompleteIndex.exportUserLogins());
+        try {
+            snapshot.write(snapshotPath);
+            log.info("Снимок индексов записан: {} фильмов, {} пользователей, offset {}, {} мс",
+                    snapshot.searchTokens().size(), snapshot.userLogins().size(), snapshot.eventOffset(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Не удалось записать снимок индексов в {}", snapshotPath, e);
+        }
+    }
+
+    private boolean restoreFromSnapshot() {
+        Optional<IndexSnapshot> loaded;
+        try {
+            loaded = IndexSnapshot.read(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать снимок индексов {}: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+        if (loaded.isEmpty()) {
+            log.info("Снимок индексов {} отсутствует или поврежден", snapshotPath);
+            return false;
+        }
+
+        IndexSnapshot snapshot = loaded.get();
+        // События, зафиксированные до остановки, но еще не перенесенные в журнал
+        int relayed;
+        do {
+            relayed = eventOutboxRelay.relay();
+        } while (relayed > 0);
+        long offset = snapshot.eventOffset();
+        if (offset > eventLog.getNextOffset() || offset < eventLog.firstOffset()) {
+            log.info("Журнал событий не покрывает период после снимка (offset {}), снимок не используется", offset);
+            return false;
+        }
+
+        likeCountIndex.restore(snapshot.likeCounts());
+        filmSearchIndex.restore(snapshot.searchTokens(), snapshot.filmVersions());
+        autocompleteIndex.restore(snapshot.filmTitles(), snapshot.userLogins());
+        int replayed = catchUp(offset);
+
+        if (!reconcileFilms() || !matchesDatabase()) {
+            log.warn("Индексы из снимка не совпадают с базой");
+            return false;
+        }
+        log.info("Из снимка загружено {} фильмов, догружено {} событий", snapshot.searchTokens().size(), replayed);
+        return true;
+    }
+
+    // Фильмы, версия которых в базе отличается от проиндексированной (изменения, не попавшие в журнал),
+    // перечитываются и индексируются заново. Фильм, которого нет в базе, из индекса автодополнения
+    // не удалить - тогда индексы строятся заново
+    private boolean reconcileFilms() {
+        Map<Integer, Integer> indexed = filmSearchIndex.exportVersions();
+        Map<Integer, Integer> actual = entityCountRepository.getFilmVersions();
+        if (!actual.keySet().containsAll(indexed.keySet())) {
+            return false;
+        }
+        Set<Integer> changed = new HashSet<>();
+        actual.forEach((filmId, version) -> {
+            if (!version.equals(indexed.get(filmId))) {
+                changed.add(filmId);
+            }
+        });
+        if (!changed.isEmpty()) {
+            log.info("Перечитано {} фильмов, измененных после снимка", changed.size());
+            for (Film film : filmStorage.getFilmsByIds(changed)) {
+                filmSearchIndex.index(film);
+                autocompleteIndex.indexFilm(film);
+            }
+        }
+        return true;
+    }
+
+    // Фильмы и пользователи перечитываются из базы целиком, число лайков - точным запросом,
+    // поэтому повторное применение события, уже учтенного в снимке, ничего не портит
+    private int catchUp(long offset) {
+        Set<Integer> changedFilms = new HashSet<>();
+        Set<Integer> likedFilms = new HashSet<>();
+        Set<Integer> changedUsers = new HashSet<>();
+        long until = eventLog.getNextOffset();
+        eventLog.read(offset, until, event -> collectChange(event, changedFilms, likedFilms, changedUsers));
+
+        for (Film film : filmStorage.getFilmsByIds(changedFilms)) {
+            filmSearchIndex.index(film);
+            autocompleteIndex.indexFilm(film);
+        }
+        if (!likedFilms.isEmpty()) {
+            Map<Integer, Integer> counts = filmLikesRepository.getLikeCounts(likedFilms);
+            for (Integer filmId : likedFilms) {
+                likeCountIndex.setLikes(filmId, counts.getOrDefault(filmId, 0));
+            }
+        }
+        for (Integer userId : changedUsers) {
+            try {
+                User user = userStorage.getUserById(userId);
+                autocompleteIndex.indexUser(user);
+            } catch (NotFoundException e) {
+                log.warn("Пользователь {} из журнала событий не найден в базе", userId);
+            }
+        }
+        return (int) (until - offset);
+    }
+
+    private void collectChange(FilmorateEvent event, Set<Integer> changedFilms, Set<Integer> likedFilms,
+                               Set<Integer> changedUsers) {
+        switch (event.getType()) {
+            case FILM_ADDED, FILM_UPDATED -> changedFilms.add(event.getFilmId());
+            case LIKE_ADDED, LIKE_REMOVED -> likedFilms.add(event.getFilmId());
+            case USER_ADDED, USER_UPDATED -> changedUsers.add(event.getUserId());
+            default -> {
+            }
+        }
+    }
+
+    // Контрольная сумма различает лайки, перенесенные между фильмами при том же общем числе
+    private boolean matchesDatabase() {
+        return autocompleteIndex.userCount() == entityCountRepository.countUsers()
+                && LikeChecksum.of(likeCountIndex.exportCounts()).equals(filmLikesRepository.getLikeChecksum());
+    }
+
+    private void rebuildAll() {
+        likeCountIndex.rebuild();
+        filmSearchIndex.rebuild();
+        autocompleteIndex.rebuild();
+    }
+}
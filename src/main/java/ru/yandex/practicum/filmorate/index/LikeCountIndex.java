@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Количество лайков по фильмам в памяти, чтобы индексы могли ранжировать по популярности без запросов к БД.
+// При старте заполняется IndexSnapshotManager из снимка или из базы.
+@Slf4j
+@Component
+public class LikeCountIndex {
+    private final FilmLikesRepository filmLikesRepository;
+    private final Map<Integer, Integer> likeCounts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LikeCountIndex(FilmLikesRepository filmLikesRepository) {
+        this.filmLikesRepository = filmLikesRepository;
+    }
+
+    public void rebuild() {
+        Map<Integer, Integer> counts = filmLikesRepository.getLikeCounts();
+        likeCounts.clear();
+        likeCounts.putAll(counts);
+        log.info("Индекс лайков построен: {} фильмов с лайками", counts.size());
+    }
+
+    public void restore(Map<Integer, Integer> counts) {
+        likeCounts.clear();
+        likeCounts.putAll(counts);
+    }
+
+    public Map<Integer, Integer> exportCounts() {
+        return new HashMap<>(likeCounts);
+    }
+
+    public void setLikes(int filmId, int likes) {
+        if (likes > 0) {
+            likeCounts.put(filmId, likes);
+        } else {
+            likeCounts.remove(filmId);
+        }
+    }
+
+    public int getLikes(int filmId) {
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    public int likeAdded(int filmId) {
+        return likeCounts.merge(filmId, 1, Integer::sum);
+    }
+
+    public int likeRemoved(int filmId) {
+        Integer count = likeCounts.computeIfPresent(filmId, (id, likes) -> likes > 1 ? likes - 1 : null);
+        return count == null ? 0 : count;
+    }
+}
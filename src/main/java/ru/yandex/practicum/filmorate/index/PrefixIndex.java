@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToIntFunction;
+
+// Отсортированный по нормализованному тексту индекс для поиска по префиксу.
+// Ключ - нормализованный текст и id, поэтому одинаковые названия у разных сущностей не перетирают друг друга.
+public class PrefixIndex {
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ConcurrentSkipListMap<String, Suggestion> entries = new ConcurrentSkipListMap<>();
+    private final Map<Integer, String> keysById = new ConcurrentHashMap<>();
+
+    public synchronized void put(int id, String text) {
+        remove(id);
+        if (text == null || text.isBlank()) {
+            return;
+        }
+
+        String key = TextTokenizer.normalize(text.trim()) + KEY_SEPARATOR + id;
+        entries.put(key, new Suggestion(id, text));
+        keysById.put(id, key);
+    }
+
+    public synchronized void remove(int id) {
+        String key = keysById.remove(id);
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        keysById.clear();
+    }
+
+    // Возвращает не более maxResults записей, начинающихся с префикса, в алфавитном порядке
+    public List<Suggestion> findByPrefix(String prefix, int maxResults) {
+        String normalized = TextTokenizer.normalize(prefix.trim());
+        List<Suggestion> result = new ArrayList<>();
+        for (Suggestion suggestion : entries.subMap(normalized, normalized + Character.MAX_VALUE).values()) {
+            if (result.size() >= maxResults) {
+                break;
+            }
+            result.add(suggestion);
+        }
+        return result;
+    }
+
+    // Возвращает не более maxResults записей с наибольшим rank среди всех начинающихся с префикса,
+    // при равном rank - в алфавитном порядке. Куча ограничена maxResults, поэтому память не зависит от числа совпадений.
+    public List<Suggestion> findTopByPrefix(String prefix, int maxResults, ToIntFunction<Suggestion> rank) {
+        String normalized = TextTokenizer.normalize(prefix.trim());
+        // В вершине кучи худший из отобранных: меньший rank, а при равном - позже по алфавиту
+        Comparator<Ranked> worstFirst = Comparator.comparingInt(Ranked::rank)
+                .thenComparing(Comparator.comparingLong(Ranked::order).reversed());
+        PriorityQueue<Ranked> top = new PriorityQueue<>(Math.min(maxResults, 1024) + 1, worstFirst);
+        long order = 0;
+        for (Suggestion suggestion : entries.subMap(normalized, normalized + Character.MAX_VALUE).values()) {
+            Ranked ranked = new Ranked(suggestion, rank.applyAsInt(suggestion), order++);
+            if (top.size() < maxResults) {
+                top.add(ranked);
+            } else if (worstFirst.compare(ranked, top.peek()) > 0) {
+                top.poll();
+                top.add(ranked);
+            }
+        }
+        List<Ranked> result = new ArrayList<>(top);
+        result.sort(worstFirst.reversed());
+        return result.stream().map(Ranked::suggestion).toList();
+    }
+
+    public List<Suggestion> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public int size() {
+        return keysById.size();
+    }
+
+    private record Ranked(Suggestion suggestion, int rank, long order) {
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+public enum SearchField {
+    TITLE(3),
+    DESCRIPTION(1);
+
+    private final int weight;
+
+    SearchField(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public static SearchField from(String value) {
+        for (SearchField field : values()) {
+            if (field.name().equalsIgnoreCase(value.trim())) {
+                return field;
+            }
+        }
+        throw new ValidationException("Неизвестное поле для поиска: " + value);
+    }
+}
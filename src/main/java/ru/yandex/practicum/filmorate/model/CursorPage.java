@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import java.util.List;
+
+// Страница списка с курсорной пагинацией; nextCursor передается в параметре cursor за следующей страницей,
+// на последней странице его нет
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Порядок значений важен: в журнале событий тип хранится порядковым номером
+public enum EventType {
+    FILM_ADDED,
+    FILM_UPDATED,
+    LIKE_ADDED,
+    LIKE_REMOVED,
+    USER_ADDED,
+    USER_UPDATED,
+    FRIEND_ADDED,
+    FRIEND_REMOVED,
+    FRIEND_CONFIRMED
+}
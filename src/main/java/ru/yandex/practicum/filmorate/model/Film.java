@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.Data;
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.HashSet;
 import jakarta.validation.constraints.*;
 
 @Data
+@JsonFilter(Film.FIELDS_FILTER)
 public class Film {
+    // Фильтр выбора полей (FilmField); без выбора полей сериализуются все, см. JacksonConfig
+    public static final String FIELDS_FILTER = "filmFields";
+
     private int id;
 
     @NotBlank(message = "Название фильма не может быть пустым")
@@ -23,6 +28,25 @@ public class Film {
     private int duration;
 
     private MpaRating mpa;
-    private Set<Genre> genres = new HashSet<>();
-    private Set<Integer> likes = new HashSet<>();
-}
\ No newline at end of file
+    // Пустые наборы по умолчанию общие и неизменяемые, чтобы не выделять их для каждого прочитанного фильма
+    private Set<Genre> genres = Set.of();
+    private Set<Integer> likes = Set.of();
+
+    // Версия для оптимистичной блокировки: если передана при обновлении, оно применяется только к этой версии
+    private Integer version;
+
+    // Копия с собственными наборами жанров и лайков: изменения копии не видны в исходном объекте
+    public Film copy() {
+        Film copy = new Film();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setDescription(description);
+        copy.setReleaseDate(releaseDate);
+        copy.setDuration(duration);
+        copy.setMpa(mpa);
+        copy.setGenres(genres.isEmpty() ? Set.of() : new LinkedHashSet<>(genres));
+        copy.setLikes(likes.isEmpty() ? Set.of() : new LinkedHashSet<>(likes));
+        copy.setVersion(version);
+        return copy;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Поля фильма для выборочной загрузки (параметр fields=id,name,mpa). По ним строится проекция SQL,
+// решается, догружать ли жанры и лайки, и фильтруется JSON. id возвращается всегда.
+public enum FilmField {
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    RELEASE_DATE("releaseDate"),
+    DURATION("duration"),
+    MPA("mpa"),
+    GENRES("genres"),
+    LIKES("likes"),
+    VERSION("version");
+
+    // Без параметра fields загружается все, кроме лайков: их список заполняется только по запросу
+    public static final Set<FilmField> DEFAULT = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(LIKES)));
+
+    private final String property;
+
+    FilmField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public static Set<FilmField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT;
+        }
+        EnumSet<FilmField> result = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String property = name.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            result.add(EnumSet.allOf(FilmField.class).stream()
+                    .filter(field -> field.property.equals(property))
+                    .findFirst()
+                    .orElseThrow(() -> new ValidationException("Неизвестное поле фильма: " + property)));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    // Фильтр Jackson, оставляющий в JSON фильма только выбранные поля
+    public static FilterProvider filter(Set<FilmField> fields) {
+        Set<String> properties = fields.stream().map(FilmField::getProperty).collect(Collectors.toSet());
+        return new SimpleFilterProvider()
+                .addFilter(Film.FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(properties));
+    }
+}
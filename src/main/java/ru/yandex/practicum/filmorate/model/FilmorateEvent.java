@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import java.time.Instant;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FilmorateEvent {
+    private final long offset;
+    private final EventType type;
+    private final Instant timestamp;
+    private final Integer filmId;
+    private final Integer userId;
+    private final Integer friendId;
+}
@@ -1,17 +1,18 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-@Data
+// Неизменяемый: прочитанные фильмы ссылаются на общие экземпляры из ReferenceDataCache
+@Value
 public class Genre {
-    private int id;
-    private String name;
+    int id;
+    String name;
 
-    public Genre(int id, String name) {
+    @JsonCreator
+    public Genre(@JsonProperty("id") int id, @JsonProperty("name") String name) {
         this.id = id;
         this.name = name;
     }
-
-    public Genre() {
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+// Изменение числа лайков фильма для потока /films/likes/stream:
+// likes - текущее значение, delta - изменение с предыдущей отправки клиенту
+@Data
+public class LikeCountUpdate {
+    private final int filmId;
+    private final int likes;
+    private final int delta;
+}
@@ -1,19 +1,39 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.config.ReplicaRoutingContext;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.dal.EventOutboxRepository;
 import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.FilmSummaryRepository;
 import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.LikeCursor;
 import ru.yandex.practicum.filmorate.dal.ValidationRepository;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeCountIndex;
+import ru.yandex.practicum.filmorate.index.SearchField;
+import ru.yandex.practicum.filmorate.web.LikeStreamBroadcaster;
 import java.util.*;
 import java.time.LocalDate;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,103 +42,391 @@ public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final FilmLikesRepository filmLikesRepository;
+    private final FilmSummaryRepository filmSummaryRepository;
     private final GenreRepository genreRepository;
     private final ValidationRepository validationRepository;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikeCountIndex likeCountIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final ResourceVersions resourceVersions;
+    private final EventOutboxRepository eventOutbox;
+    private final LikeStreamBroadcaster likeStreamBroadcaster;
+    private final PopularFilmsSnapshot popularFilmsSnapshot;
+    private final TransactionTemplate readOnlyTransaction;
+    // Списки фильмов читаются из денормализованной film_summary; при false - из исходных таблиц
+    private final boolean summaryEnabled;
+    private final SingleFlight filmReads = new SingleFlight("film");
+    private final SingleFlight popularReads = new SingleFlight("popular");
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
                        @Qualifier("userDbStorage") UserStorage userStorage,
                        FilmLikesRepository filmLikesRepository,
+                       FilmSummaryRepository filmSummaryRepository,
                        GenreRepository genreRepository,
-                       ValidationRepository validationRepository) {
+                       ValidationRepository validationRepository,
+                       FilmSearchIndex filmSearchIndex,
+                       LikeCountIndex likeCountIndex,
+                       AutocompleteIndex autocompleteIndex,
+                       ResourceVersions resourceVersions,
+                       EventOutboxRepository eventOutbox,
+                       LikeStreamBroadcaster likeStreamBroadcaster,
+                       PopularFilmsSnapshot popularFilmsSnapshot,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${filmorate.summary.enabled:true}") boolean summaryEnabled) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.filmLikesRepository = filmLikesRepository;
+        this.filmSummaryRepository = filmSummaryRepository;
         this.genreRepository = genreRepository;
         this.validationRepository = validationRepository;
+        this.filmSearchIndex = filmSearchIndex;
+        this.likeCountIndex = likeCountIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.resourceVersions = resourceVersions;
+        this.eventOutbox = eventOutbox;
+        this.likeStreamBroadcaster = likeStreamBroadcaster;
+        this.popularFilmsSnapshot = popularFilmsSnapshot;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.summaryEnabled = summaryEnabled;
+        filmReads.bindTo(meterRegistry);
+        popularReads.bindTo(meterRegistry);
     }
 
+    @Transactional(readOnly = true)
     public List<Film> getAllFilms() {
-        log.debug("Получение всех фильмов из хранилища");
-        List<Film> films = filmStorage.getAllFilms();
-        genreRepository.loadGenresForFilms(films);
+        return getAllFilms(FilmField.DEFAULT);
+    }
+
+    // Загружаются только выбранные поля: проекция в запросе к сводке или к films. Из сводки жанры читаются
+    // той же строкой, без сводки - отдельным запросом, если они запрошены. Лайки в обоих случаях догружаются по запросу
+    @Transactional(readOnly = true)
+    public List<Film> getAllFilms(Set<FilmField> fields) {
+        log.debug("Получение всех фильмов из хранилища, поля: {}", fields);
+        if (summaryEnabled) {
+            List<Film> films = filmSummaryRepository.getAllFilms(fields);
+            loadLikes(films, fields);
+            return films;
+        }
+        List<Film> films = filmStorage.getAllFilms(fields);
+        enrich(films, fields);
         return films;
     }
 
+    // Фильмы в порядке запрошенных id, повторы и несуществующие id пропускаются.
+    // Два запроса к базе (фильмы с MPA и жанры) при любом размере пачки
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return getFilmsByIds(ids, FilmField.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsByIds(List<Integer> ids, Set<FilmField> fields) {
+        log.debug("Получение фильмов по списку id: {}", ids);
+        Set<Integer> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Integer, Film> films = filmStorage.getFilmsByIds(uniqueIds, fields).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        List<Film> result = uniqueIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        enrich(result, fields);
+        return result;
+    }
+
+    private void enrich(List<Film> films, Set<FilmField> fields) {
+        if (fields.contains(FilmField.GENRES)) {
+            genreRepository.loadGenresForFilms(films);
+        }
+        loadLikes(films, fields);
+    }
+
+    private void loadLikes(List<Film> films, Set<FilmField> fields) {
+        if (fields.contains(FilmField.LIKES) && !films.isEmpty()) {
+            Map<Integer, Set<Integer>> likes = filmLikesRepository.getUserIdsWhoLiked(
+                    films.stream().map(Film::getId).toList());
+            films.forEach(film -> film.setLikes(likes.getOrDefault(film.getId(), Set.of())));
+        }
+    }
+
+    // Фильм и его жанры сохраняются в одной транзакции; MPA и жанры проверяются по закешированным справочникам
+    @Transactional
     public Film addFilm(Film film) {
         log.debug("Добавление нового фильма: {}", film);
         validateFilm(film);
-
-        validationRepository.validateMpaExists(film.getMpa().getId());
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            Set<Integer> genreIds = film.getGenres().stream()
-                    .map(Genre::getId)
-                    .collect(Collectors.toSet());
-            validationRepository.validateGenresExist(genreIds);
-        }
+        validateReferences(film);
 
         Film addedFilm = filmStorage.addFilm(film);
-        genreRepository.saveFilmGenres(addedFilm.getId(), addedFilm.getGenres());
+        genreRepository.insertFilmGenres(addedFilm.getId(), addedFilm.getGenres());
+        if (summaryEnabled) {
+            filmSummaryRepository.filmAdded(addedFilm);
+        }
+        eventOutbox.add(EventType.FILM_ADDED, addedFilm.getId(), null, null);
+        TransactionHooks.afterCommit(() -> {
+            filmSearchIndex.index(addedFilm);
+            autocompleteIndex.indexFilm(addedFilm);
+            resourceVersions.filmChanged(addedFilm.getId());
+        });
         log.info("Фильм успешно добавлен с id: {}", addedFilm.getId());
         return addedFilm;
     }
 
+    // Проверки, обновление фильма и его жанров выполняются в одной транзакции:
+    // читатели не видят фильм без жанров в середине обновления, а устаревшая версия откатывает все изменения
+    @Transactional
     public Film updateFilm(Film film) {
         log.debug("Обновление фильма с id {}: {}", film.getId(), film);
         validateFilm(film);
-
-        validationRepository.validateMpaExists(film.getMpa().getId());
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            Set<Integer> genreIds = film.getGenres().stream()
-                    .map(Genre::getId)
-                    .collect(Collectors.toSet());
-            validationRepository.validateGenresExist(genreIds);
-        }
+        validateReferences(film);
 
         Film updatedFilm = filmStorage.updateFilm(film);
         genreRepository.saveFilmGenres(updatedFilm.getId(), updatedFilm.getGenres());
+        if (summaryEnabled) {
+            filmSummaryRepository.filmUpdated(updatedFilm);
+        }
+        eventOutbox.add(EventType.FILM_UPDATED, updatedFilm.getId(), null, null);
+        TransactionHooks.afterCommit(() -> {
+            filmSearchIndex.index(updatedFilm);
+            autocompleteIndex.indexFilm(updatedFilm);
+            resourceVersions.filmChanged(updatedFilm.getId());
+        });
         log.info("Фильм с id {} успешно обновлен", updatedFilm.getId());
         return updatedFilm;
     }
 
+    // Одновременные запросы одного фильма объединяются в один запрос к базе. Транзакция открывается только
+    // у выполняющего вызова, поэтому ожидающие запросы не занимают соединения из пула.
+    // Каждый вызов получает свою копию фильма, поэтому изменения у одного не видны остальным.
+    // Версия в ключе не дает запросу, пришедшему после изменения фильма, получить результат более раннего вызова,
+    // поэтому и читается он с основной базы: реплика может еще не содержать изменения этой версии.
     public Film getFilmById(int id) {
         log.debug("Поиск фильма по id: {}", id);
+        Film film = filmReads.execute(List.of(id, resourceVersions.getFilmVersion(id)),
+                () -> ReplicaRoutingContext.callOnPrimary(() -> readOnlyTransaction.execute(status -> {
+                    Film loaded = filmStorage.getFilmById(id);
+                    genreRepository.loadGenresForFilm(loaded);
+                    return loaded;
+                })), Film::copy);
+        log.debug("Найден фильм: {}", film);
+        return film;
+    }
+
+    // Фильм вместе со списком id лайкнувших пользователей. Загружается без объединения запросов:
+    // заполнение likes не должно менять объект, который получают другие запросы
+    @Transactional(readOnly = true)
+    public Film getFilmWithLikes(int id) {
+        log.debug("Поиск фильма по id {} вместе с лайками", id);
         Film film = filmStorage.getFilmById(id);
         genreRepository.loadGenresForFilm(film);
-        log.debug("Найден фильм: {}", film);
+        film.setLikes(filmLikesRepository.getUserIdsWhoLiked(id));
         return film;
     }
 
+    // Фильмы, которые лайкнул пользователь, от последних лайков к первым
+    @Transactional(readOnly = true)
+    public CursorPage<Film> getLikedFilms(int userId, String cursor, int limit) {
+        log.debug("Получение фильмов, которые лайкнул пользователь с id {}", userId);
+        userStorage.getUserById(userId);
+        List<LikeCursor> likes = filmLikesRepository.getLikesByUser(userId, decodeCursor(cursor), limit + 1);
+        List<LikeCursor> page = likes.subList(0, Math.min(limit, likes.size()));
+        List<Film> films = getFilmsByIds(page.stream().map(LikeCursor::id).toList());
+        return new CursorPage<>(films, nextCursor(likes, limit));
+    }
+
+    // Пользователи, лайкнувшие фильм, от последних лайков к первым
+    @Transactional(readOnly = true)
+    public CursorPage<User> getFilmLikers(int filmId, String cursor, int limit) {
+        log.debug("Получение пользователей, лайкнувших фильм с id {}", filmId);
+        filmStorage.getFilmById(filmId);
+        List<LikeCursor> likes = filmLikesRepository.getLikesOfFilm(filmId, decodeCursor(cursor), limit + 1);
+        List<Integer> userIds = likes.subList(0, Math.min(limit, likes.size())).stream()
+                .map(LikeCursor::id)
+                .toList();
+        Map<Integer, User> users = userStorage.getUsersByIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> result = userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new CursorPage<>(result, nextCursor(likes, limit));
+    }
+
+    // Копия списка из объединенного чтения: список неизменяемый, фильмы свои у каждого вызова
+    private static List<Film> copyOf(List<Film> films) {
+        return films.stream().map(Film::copy).toList();
+    }
+
+    private static LikeCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : LikeCursor.decode(cursor);
+    }
+
+    // Запрашивается на одну запись больше страницы: если она есть, следующая страница начинается после последней
+    private static String nextCursor(List<LikeCursor> likes, int limit) {
+        return likes.size() > limit ? likes.get(limit - 1).encode() : null;
+    }
+
+    @Transactional
     public void addLike(int filmId, int userId) {
         log.debug("Добавление лайка фильму с id {} от пользователя с id {}", filmId, userId);
         filmStorage.getFilmById(filmId);
         userStorage.getUserById(userId);
+        // Сводка в основной базе меняется раньше шарда: если запись лайка не пройдет, транзакция откатит и ее
+        if (summaryEnabled) {
+            filmSummaryRepository.likesChanged(filmId, 1);
+        }
         filmLikesRepository.addLike(filmId, userId);
+        eventOutbox.add(EventType.LIKE_ADDED, filmId, userId, null);
+        TransactionHooks.afterCommit(() -> {
+            likeCountIndex.likeAdded(filmId);
+            resourceVersions.likesChanged();
+            likeStreamBroadcaster.likesChanged(filmId, 1);
+        });
         log.info("Пользователь с id {} поставил лайк фильму с id {}", userId, filmId);
     }
 
+    @Transactional
     public void removeLike(int filmId, int userId) {
         log.debug("Удаление лайка фильму с id {} от пользователя с id {}", filmId, userId);
         filmStorage.getFilmById(filmId);
         userStorage.getUserById(userId);
+        // Сводка в основной базе меняется раньше шарда: если запись лайка не пройдет, транзакция откатит и ее
+        if (summaryEnabled) {
+            filmSummaryRepository.likesChanged(filmId, -1);
+        }
         filmLikesRepository.removeLike(filmId, userId);
+        eventOutbox.add(EventType.LIKE_REMOVED, filmId, userId, null);
+        TransactionHooks.afterCommit(() -> {
+            likeCountIndex.likeRemoved(filmId);
+            resourceVersions.likesChanged();
+            likeStreamBroadcaster.likesChanged(filmId, -1);
+        });
         log.info("Пользователь с id {} удалил лайк с фильма с id {}", userId, filmId);
     }
 
+    // Объединяется и читается с основной базы так же, как getFilmById
     public List<Film> getPopularFilms(int count) {
-        log.debug("Получение {} популярных фильмов", count);
+        return getPopularFilms(count, FilmField.DEFAULT);
+    }
+
+    public List<Film> getPopularFilms(int count, Set<FilmField> fields) {
+        return getPopularFilms(count, fields, null, null);
+    }
+
+    // Список популярных строится одним запросом (из сводки - с жанрами), поэтому выбор полей влияет только
+    // на догрузку жанров и лайков. Если включен снимок популярных фильмов, список берется из него без запросов
+    // к базе; лайки в снимке не хранятся, поэтому запрос с полем likes идет мимо снимка.
+    // genreId или mpaId ограничивают список фильмами одного жанра или рейтинга
+    public List<Film> getPopularFilms(int count, Set<FilmField> fields, Integer genreId, Integer mpaId) {
+        log.debug("Получение {} популярных фильмов, жанр {}, MPA {}", count, genreId, mpaId);
 
         if (count <= 0) {
             log.warn("Запрошено недопустимое количество фильмов: {}", count);
             throw new ValidationException("Количество фильмов должно быть положительным числом");
         }
+        if (genreId != null && mpaId != null) {
+            throw new ValidationException("Популярные фильмы можно отфильтровать только по жанру или только по MPA");
+        }
+        if (genreId != null) {
+            validationRepository.validateGenresExist(Set.of(genreId));
+        }
+        if (mpaId != null) {
+            validationRepository.validateMpaExists(mpaId);
+        }
 
-        List<Film> popularFilms = filmLikesRepository.getPopularFilms(count);
-        genreRepository.loadGenresForFilms(popularFilms);
+        // Фильмы снимка общие для всех запросов, вызывающий получает копии
+        if (!fields.contains(FilmField.LIKES)) {
+            Optional<List<Film>> snapshot = popularFilmsSnapshot.find(count, genreId, mpaId);
+            if (snapshot.isPresent()) {
+                return copyOf(snapshot.get());
+            }
+        }
+
+        List<Film> popularFilms = popularReads.execute(
+                new PopularKey(count, fields, genreId, mpaId, resourceVersions.getPopularFilmsVersion()),
+                () -> ReplicaRoutingContext.callOnPrimary(() -> readOnlyTransaction.execute(status -> {
+                    if (summaryEnabled) {
+                        List<Film> loaded = filmSummaryRepository.getPopularFilms(count, genreId, mpaId);
+                        loadLikes(loaded, fields);
+                        return loaded;
+                    }
+                    List<Film> loaded = filmLikesRepository.getPopularFilms(count, genreId, mpaId);
+                    enrich(loaded, fields);
+                    return loaded;
+                })), FilmService::copyOf);
         log.debug("Найдено {} популярных фильмов", popularFilms.size());
         return popularFilms;
     }
 
+    // Версия для ETag списка популярных фильмов. Если список будет взят из снимка, версия меняется только
+    // при пересчете снимка, а не при каждом лайке, и клиенты с прежним ETag получают 304
+    public ResourceVersions.Version getPopularFilmsVersion(int count, Set<FilmField> fields) {
+        if (!fields.contains(FilmField.LIKES) && popularFilmsSnapshot.covers(count)) {
+            return resourceVersions.getPopularSnapshotVersion();
+        }
+        return resourceVersions.getPopularFilmsVersion();
+    }
+
+    private record PopularKey(int count, Set<FilmField> fields, Integer genreId, Integer mpaId,
+                              ResourceVersions.Version version) {
+    }
+
+    @Transactional(readOnly = true)
+    public List<Film> searchFilms(String query, List<String> by, int count) {
+        log.debug("Поиск фильмов по запросу '{}' в полях {}", query, by);
+
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+
+        Set<SearchField> fields = EnumSet.noneOf(SearchField.class);
+        for (String field : by) {
+            fields.add(SearchField.from(field));
+        }
+
+        List<Integer> filmIds = filmSearchIndex.search(query, fields, count);
+        List<Film> films = getFilmsInOrder(filmIds);
+        log.debug("По запросу '{}' найдено {} фильмов", query, films.size());
+        return films;
+    }
+
+    public List<Suggestion> autocompleteFilms(String prefix, int count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не может быть пустым");
+        }
+        return autocompleteIndex.suggestFilms(prefix, count);
+    }
+
+    private List<Film> getFilmsInOrder(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Film> filmsById = filmStorage.getFilmsByIds(filmIds).stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        List<Film> films = filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        genreRepository.loadGenresForFilms(films);
+        return films;
+    }
+
+    private void validateReferences(Film film) {
+        if (film.getMpa() == null) {
+            throw new ValidationException("MPA рейтинг не может быть null");
+        }
+
+        validationRepository.validateMpaExists(film.getMpa().getId());
+        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+            Set<Integer> genreIds = film.getGenres().stream()
+                    .map(Genre::getId)
+                    .collect(Collectors.toSet());
+            validationRepository.validateGenresExist(genreIds);
+        }
+    }
+
     private void validateFilm(Film film) {
         log.debug("Валидация фильма: {}", film);
 
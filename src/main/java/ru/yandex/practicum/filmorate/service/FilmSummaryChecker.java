@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.FilmSummary;
+import ru.yandex.practicum.filmorate.dal.FilmSummaryRepository;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import java.util.List;
+import java.util.Map;
+
+// Сверка film_summary с исходными таблицами и исправление расхождений
+@Slf4j
+@Component
+public class FilmSummaryChecker {
+    private final FilmSummaryRepository filmSummaryRepository;
+    private final FilmStorage filmStorage;
+    private final GenreRepository genreRepository;
+    private final FilmLikesRepository filmLikesRepository;
+    private final boolean enabled;
+
+    @Autowired
+    public FilmSummaryChecker(FilmSummaryRepository filmSummaryRepository,
+                              @Qualifier("filmDbStorage") FilmStorage filmStorage,
+                              GenreRepository genreRepository,
+                              FilmLikesRepository filmLikesRepository,
+                              @Value("${filmorate.summary.enabled:true}") boolean enabled) {
+        this.filmSummaryRepository = filmSummaryRepository;
+        this.filmStorage = filmStorage;
+        this.genreRepository = genreRepository;
+        this.filmLikesRepository = filmLikesRepository;
+        this.enabled = enabled;
+    }
+
+    // Полная проверка на каждом старте задерживала бы его на чтение всех фильмов; заполненную сводку
+    // сверит плановая проверка
+    @PostConstruct
+    public void checkOnStartup() {
+        if (enabled && filmSummaryRepository.isEmpty()) {
+            log.info("Сводка film_summary пуста, заполняется по исходным таблицам");
+            check();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.summary.check-interval-ms:600000}",
+            fixedDelayString = "${filmorate.summary.check-interval-ms:600000}")
+    public void scheduledCheck() {
+        if (enabled) {
+            check();
+        }
+    }
+
+    // Сводка читается раньше исходных таблиц: изменение, попавшее между чтениями, видно в исходных таблицах,
+    // а строку сводки оно уже обновило, и условная замена ее не затрет. Возвращает число исправленных строк
+    public int check() {
+        long started = System.nanoTime();
+        Map<Integer, FilmSummary> stored = filmSummaryRepository.getSummaries();
+        List<Film> films = filmStorage.getAllFilms();
+        genreRepository.loadGenresForFilms(films);
+        Map<Integer, Integer> likes = filmLikesRepository.getLikeCounts();
+
+        int repaired = 0;
+        for (Film film : films) {
+            FilmSummary expected = filmSummaryRepository.summaryOf(film, likes.getOrDefault(film.getId(), 0));
+            FilmSummary current = stored.get(film.getId());
+            if (expected.equals(current)) {
+                continue;
+            }
+            if (repair(current, expected)) {
+                log.debug("Сводка фильма с id {} исправлена: {} -> {}", film.getId(), current, expected);
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            log.warn("Сводка фильмов расходилась с данными: исправлено {} строк из {}", repaired, films.size());
+        }
+        log.debug("Проверка сводки фильмов заняла {} мс", (System.nanoTime() - started) / 1_000_000);
+        return repaired;
+    }
+
+    private boolean repair(FilmSummary current, FilmSummary expected) {
+        if (current != null) {
+            return filmSummaryRepository.replace(current, expected);
+        }
+        try {
+            filmSummaryRepository.insert(expected);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Строку успела добавить запись фильма
+            return false;
+        }
+    }
+}
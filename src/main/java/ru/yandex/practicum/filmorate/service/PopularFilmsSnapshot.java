@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+// Заранее посчитанные списки популярных фильмов, пересчитываемые по расписанию
+@Slf4j
+@Component
+public class PopularFilmsSnapshot implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final GenreRepository genreRepository;
+    private final FilmLikesRepository filmLikesRepository;
+    private final ResourceVersions resourceVersions;
+    private final boolean enabled;
+    private final int size;
+    private final LongSupplier clock;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    @Autowired
+    public PopularFilmsSnapshot(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                                GenreRepository genreRepository,
+                                FilmLikesRepository filmLikesRepository,
+                                ResourceVersions resourceVersions,
+                                @Value("${filmorate.popular.snapshot.enabled:false}") boolean enabled,
+                                @Value("${filmorate.popular.snapshot.size:100}") int size) {
+        this(filmStorage, genreRepository, filmLikesRepository, resourceVersions, enabled, size,
+                System::currentTimeMillis);
+    }
+
+    PopularFilmsSnapshot(FilmStorage filmStorage, GenreRepository genreRepository,
+                         FilmLikesRepository filmLikesRepository, ResourceVersions resourceVersions,
+                         boolean enabled, int size, LongSupplier clock) {
+        this.filmStorage = filmStorage;
+        this.genreRepository = genreRepository;
+        this.filmLikesRepository = filmLikesRepository;
+        this.resourceVersions = resourceVersions;
+        this.enabled = enabled;
+        this.size = size;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            log.info("Популярные фильмы отдаются из снимка: топ-{} в целом, по жанрам и MPA", size);
+            refresh();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.popular.snapshot.interval-ms:60000}",
+            fixedDelayString = "${filmorate.popular.snapshot.interval-ms:60000}")
+    public void scheduledRefresh() {
+        if (enabled) {
+            refresh();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Плановый и ручной пересчеты не выполняются одновременно
+    public synchronized void refresh() {
+        long started = System.nanoTime();
+        List<Film> films = filmStorage.getAllFilms();
+        genreRepository.loadGenresForFilms(films);
+        Map<Integer, Integer> likes = filmLikesRepository.getLikeCounts();
+
+        current.set(build(films, likes, size, clock.getAsLong()));
+        resourceVersions.popularFilmsRecomputed();
+        log.debug("Снимок популярных фильмов пересчитан за {} мс: {} фильмов",
+                (System.nanoTime() - started) / 1_000_000, films.size());
+    }
+
+    // Запрос count фильмов будет отдан из снимка (без фильтра по полю likes, которого в снимке нет)
+    public boolean covers(int count) {
+        return current.get() != null && count <= size;
+    }
+
+    // Пусто, если снимок выключен, еще не построен или запрошено больше фильмов, чем в нем хранится.
+    // genreId и mpaId - необязательные фильтры, одновременно задается не больше одного
+    public Optional<List<Film>> find(int count, Integer genreId, Integer mpaId) {
+        Snapshot snapshot = current.get();
+        if (snapshot == null || count > size) {
+            return Optional.empty();
+        }
+        return Optional.of(select(snapshot, count, genreId, mpaId));
+    }
+
+    private static List<Film> select(Snapshot snapshot, int count, Integer genreId, Integer mpaId) {
+        List<Film> films;
+        if (genreId != null) {
+            films = snapshot.byGenre().getOrDefault(genreId, List.of());
+        } else if (mpaId != null) {
+            films = snapshot.byMpa().getOrDefault(mpaId, List.of());
+        } else {
+            films = snapshot.overall();
+        }
+        return films.subList(0, Math.min(count, films.size()));
+    }
+
+    // Возраст снимка в секундах; NaN, пока снимок не построен
+    public double getAgeSeconds() {
+        Snapshot snapshot = current.get();
+        return snapshot == null ? Double.NaN : (clock.getAsLong() - snapshot.builtAt()) / 1000.0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.popular.snapshot.age", this, PopularFilmsSnapshot::getAgeSeconds)
+                .description("Время с последнего пересчета снимка популярных фильмов")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    // Фильмы сортируются по числу лайков, при равенстве - по id; списки по жанрам и MPA заполняются
+    // в том же порядке до size фильмов. Тот же порядок дает запрос популярных фильмов к базе
+    static Snapshot build(List<Film> films, Map<Integer, Integer> likes, int size, long builtAt) {
+        List<Film> ranked = films.stream()
+                .sorted(Comparator.<Film>comparingInt(film -> likes.getOrDefault(film.getId(), 0)).reversed()
+                        .thenComparingInt(Film::getId))
+                .toList();
+
+        Map<Integer, List<Film>> byGenre = new HashMap<>();
+        Map<Integer, List<Film>> byMpa = new HashMap<>();
+        for (Film film : ranked) {
+            for (Genre genre : film.getGenres()) {
+                addIfRoom(byGenre, genre.getId(), film, size);
+            }
+            if (film.getMpa() != null) {
+                addIfRoom(byMpa, film.getMpa().getId(), film, size);
+            }
+        }
+        return new Snapshot(List.copyOf(ranked.subList(0, Math.min(size, ranked.size()))),
+                immutableCopy(byGenre), immutableCopy(byMpa), builtAt);
+    }
+
+    private static void addIfRoom(Map<Integer, List<Film>> lists, int key, Film film, int size) {
+        List<Film> list = lists.computeIfAbsent(key, k -> new ArrayList<>());
+        if (list.size() < size) {
+            list.add(film);
+        }
+    }
+
+    private static Map<Integer, List<Film>> immutableCopy(Map<Integer, List<Film>> lists) {
+        return lists.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue())));
+    }
+
+    record Snapshot(List<Film> overall, Map<Integer, List<Film>> byGenre, Map<Integer, List<Film>> byMpa,
+                    long builtAt) {
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+
+// Пересчет снимка популярных фильмов вне расписания (POST /actuator/popularsnapshot), например после массовой
+// загрузки лайков. Пересчет читает все фильмы и лайки, поэтому доступен только через actuator: endpoint
+// публикуется явно через management.endpoints.web.exposure.include и закрывается так же, как остальные
+@Slf4j
+@Component
+@Endpoint(id = "popularsnapshot")
+@ConditionalOnProperty(name = "filmorate.popular.snapshot.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class PopularFilmsSnapshotEndpoint {
+    private final PopularFilmsSnapshot popularFilmsSnapshot;
+
+    @ReadOperation
+    public Map<String, Object> age() {
+        return Map.of("ageSeconds", popularFilmsSnapshot.getAgeSeconds());
+    }
+
+    @WriteOperation
+    public Map<String, Object> refresh() {
+        log.info("Пересчет снимка популярных фильмов по запросу");
+        popularFilmsSnapshot.refresh();
+        return age();
+    }
+}
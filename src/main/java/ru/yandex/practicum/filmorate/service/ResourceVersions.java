@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Счетчики версий ресурсов для условных GET-запросов (ETag/Last-Modified).
+// Версия увеличивается при каждой записи, поэтому ETag вычисляется без обращения к БД и без хеширования тела ответа.
+// Время запуска входит в ETag: после перезапуска все ранее выданные ETag становятся недействительными.
+@Component
+public class ResourceVersions {
+    private static final String FILM = "film:";
+    private static final String POPULAR_FILMS = "films:popular";
+    private static final String POPULAR_SNAPSHOT = "films:popular:snapshot";
+    private static final String GENRES = "genres";
+    private static final String MPA = "mpa";
+
+    private final long epoch = System.currentTimeMillis();
+    private final Version initial = new Version(epoch, 0, epoch);
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    public Version getFilmVersion(int filmId) {
+        return get(FILM + filmId);
+    }
+
+    public Version getPopularFilmsVersion() {
+        return get(POPULAR_FILMS);
+    }
+
+    // Список популярных, отданный из PopularFilmsSnapshot: меняется только при пересчете снимка
+    public Version getPopularSnapshotVersion() {
+        return get(POPULAR_SNAPSHOT);
+    }
+
+    public Version getGenresVersion() {
+        return get(GENRES);
+    }
+
+    public Version getMpaVersion() {
+        return get(MPA);
+    }
+
+    public void filmChanged(int filmId) {
+        bump(FILM + filmId);
+        bump(POPULAR_FILMS);
+    }
+
+    public void likesChanged() {
+        bump(POPULAR_FILMS);
+    }
+
+    // Опубликован новый снимок популярных фильмов (PopularFilmsSnapshot)
+    public void popularFilmsRecomputed() {
+        bump(POPULAR_SNAPSHOT);
+    }
+
+    public void genresChanged() {
+        bump(GENRES);
+    }
+
+    public void mpaChanged() {
+        bump(MPA);
+    }
+
+    private Version get(String key) {
+        return versions.getOrDefault(key, initial);
+    }
+
+    private void bump(String key) {
+        versions.compute(key, (k, version) -> new Version(epoch,
+                version == null ? 1 : version.counter() + 1,
+                System.currentTimeMillis()));
+    }
+
+    public record Version(long epoch, long counter, long lastModified) {
+        // representation различает представления одной версии: у каждого свой ETag
+        public String getETag(String representation) {
+            return "\"" + Long.toString(epoch, 36) + "-" + counter + "-" + representation + "\"";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Объединяет одинаковые одновременные чтения: пока вызов с ключом выполняется, остальные запросы с тем же ключом
+// ждут его результат (или исключение) вместо собственного обращения к базе. Результат не кешируется:
+// после завершения вызова следующий запрос снова идет в базу.
+// Изменяемый результат передается через copier: каждый вызов, включая выполняющий, получает свою копию,
+// а общий объект никому не отдается.
+public class SingleFlight implements MeterBinder {
+    private final String name;
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public <T> T execute(Object key, Supplier<T> loader) {
+        return execute(key, loader, UnaryOperator.identity());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> loader, UnaryOperator<T> copier) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            return copier.apply((T) await(running));
+        }
+
+        executions.increment();
+        try {
+            T result = loader.get();
+            call.complete(result);
+            return copier.apply(result);
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.singleflight.executions", this, SingleFlight::getExecutions)
+                .tag("operation", name)
+                .description("Чтения, выполненные запросом к базе")
+                .register(registry);
+        FunctionCounter.builder("filmorate.singleflight.coalesced", this, SingleFlight::getCoalesced)
+                .tag("operation", name)
+                .description("Чтения, получившие результат уже выполняющегося запроса")
+                .register(registry);
+    }
+
+    private static Object await(CompletableFuture<Object> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -4,47 +4,87 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.dal.EventOutboxRepository;
 import ru.yandex.practicum.filmorate.dal.FriendshipRepository;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class UserService {
     private final UserStorage userStorage;
     private final FriendshipRepository friendshipRepository;
+    private final AutocompleteIndex autocompleteIndex;
+    private final EventOutboxRepository eventOutbox;
 
     @Autowired
     public UserService(@Qualifier("userDbStorage") UserStorage userStorage,
-                       FriendshipRepository friendshipRepository) {
+                       FriendshipRepository friendshipRepository,
+                       AutocompleteIndex autocompleteIndex,
+                       EventOutboxRepository eventOutbox) {
         this.userStorage = userStorage;
         this.friendshipRepository = friendshipRepository;
+        this.autocompleteIndex = autocompleteIndex;
+        this.eventOutbox = eventOutbox;
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userStorage.getAllUsers();
     }
 
+    @Transactional
     public User addUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        return userStorage.addUser(user);
+        User addedUser = userStorage.addUser(user);
+        eventOutbox.add(EventType.USER_ADDED, null, addedUser.getId(), null);
+        TransactionHooks.afterCommit(() -> autocompleteIndex.indexUser(addedUser));
+        return addedUser;
     }
 
+    @Transactional
     public User updateUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        return userStorage.updateUser(user);
+        User updatedUser = userStorage.updateUser(user);
+        eventOutbox.add(EventType.USER_UPDATED, null, updatedUser.getId(), null);
+        TransactionHooks.afterCommit(() -> autocompleteIndex.indexUser(updatedUser));
+        return updatedUser;
     }
 
+    @Transactional(readOnly = true)
     public User getUserById(int id) {
         return userStorage.getUserById(id);
     }
 
+    // Пользователи в порядке запрошенных id одним запросом, повторы и несуществующие id пропускаются
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(List<Integer> ids) {
+        Set<Integer> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Integer, User> users = userStorage.getUsersByIds(uniqueIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return uniqueIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional
     public void addFriend(int userId, int friendId) {
         userStorage.getUserById(userId);
         userStorage.getUserById(friendId);
@@ -54,28 +94,42 @@ public class UserService {
         }
 
         friendshipRepository.addFriend(userId, friendId);
+        eventOutbox.add(EventType.FRIEND_ADDED, null, userId, friendId);
     }
 
+    @Transactional
     public void removeFriend(int userId, int friendId) {
         userStorage.getUserById(userId);
         userStorage.getUserById(friendId);
         friendshipRepository.removeFriend(userId, friendId);
+        eventOutbox.add(EventType.FRIEND_REMOVED, null, userId, friendId);
     }
 
+    @Transactional(readOnly = true)
     public List<User> getFriends(int userId) {
         userStorage.getUserById(userId);
         return friendshipRepository.getFriends(userId);
     }
 
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(int userId, int otherUserId) {
         userStorage.getUserById(userId);
         userStorage.getUserById(otherUserId);
         return friendshipRepository.getCommonFriends(userId, otherUserId);
     }
 
+    @Transactional
     public void confirmFriend(int userId, int friendId) {
         userStorage.getUserById(userId);
         userStorage.getUserById(friendId);
         friendshipRepository.confirmFriend(userId, friendId);
+        eventOutbox.add(EventType.FRIEND_CONFIRMED, null, userId, friendId);
+    }
+
+    public List<Suggestion> autocompleteUsers(String prefix, int count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не может быть пустым");
+        }
+        return autocompleteIndex.suggestUsers(prefix, count);
     }
 }
\ No newline at end of file
@@ -8,13 +8,17 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.dal.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import java.sql.*;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Slf4j
 @Repository
@@ -23,26 +27,40 @@ import java.util.Objects;
 public class FilmDbStorage implements FilmStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Override
     public List<Film> getAllFilms() {
-        String sql = "SELECT f.*, m.mpa_id, m.name as mpa_name FROM films f JOIN mpa_ratings m ON f.mpa_id = m.mpa_id";
+        String sql = "SELECT f.* FROM films f";
         return jdbcTemplate.query(sql, this::mapRowToFilm);
     }
 
+    @Override
+    public List<Film> getAllFilms(Set<FilmField> fields) {
+        return jdbcTemplate.query(projection(fields), (rs, rowNum) -> mapRowToFilm(rs, fields));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids, Set<FilmField> fields) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(projection(fields) + " WHERE f.film_id = ANY(?)",
+                (rs, rowNum) -> mapRowToFilm(rs, fields), (Object) ids.toArray(new Integer[0]));
+    }
+
     @Override
     public Film addFilm(Film film) {
         if (film.getMpa() == null || film.getMpa().getId() == 0) {
             throw new ValidationException("MPA рейтинг не может быть null");
         }
 
-        validateMpaExists(film.getMpa().getId());
-
         String sql = "INSERT INTO films (title, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
@@ -57,33 +75,60 @@ public class FilmDbStorage implements FilmStorage {
         }, keyHolder);
 
         film.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        film.setVersion(0);
         return film;
     }
 
     @Override
     public Film updateFilm(Film film) {
-        validateMpaExists(film.getMpa().getId());
-
-        String sql = "UPDATE films SET title = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE film_id = ?";
-        int updated = jdbcTemplate.update(sql,
-                film.getName(),
-                film.getDescription(),
-                film.getReleaseDate(),
-                film.getDuration(),
-                film.getMpa().getId(),
-                film.getId()
-        );
+        String sql = "UPDATE films SET title = ?, description = ?, release_date = ?, duration = ?, mpa_id = ?, " +
+                "version = version + 1 WHERE film_id = ?";
+        int updated;
+        if (film.getVersion() == null) {
+            updated = jdbcTemplate.update(sql,
+                    film.getName(),
+                    film.getDescription(),
+                    film.getReleaseDate(),
+                    film.getDuration(),
+                    film.getMpa().getId(),
+                    film.getId()
+            );
+        } else {
+            updated = jdbcTemplate.update(sql + " AND version = ?",
+                    film.getName(),
+                    film.getDescription(),
+                    film.getReleaseDate(),
+                    film.getDuration(),
+                    film.getMpa().getId(),
+                    film.getId(),
+                    film.getVersion()
+            );
+        }
 
-        if (updated == 0) {
+        if (updated > 0 && film.getVersion() != null) {
+            film.setVersion(film.getVersion() + 1);
+            return film;
+        }
+
+        // Версия не передана или обновление не применилось: читаем актуальную версию, чтобы вернуть ее
+        // либо отличить отсутствующий фильм от конфликта версий
+        List<Integer> versions = jdbcTemplate.queryForList("SELECT version FROM films WHERE film_id = ?",
+                Integer.class, film.getId());
+        if (versions.isEmpty()) {
             throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
         }
+        if (updated == 0) {
+            throw new ConflictException("Фильм с id " + film.getId() + " был изменен: текущая версия " +
+                    versions.get(0) + ", передана " + film.getVersion());
+        }
 
+        film.setVersion(versions.get(0));
         return film;
     }
 
     @Override
     public Film getFilmById(int id) {
-        String sql = "SELECT f.*, m.mpa_id, m.name as mpa_name FROM films f JOIN mpa_ratings m ON f.mpa_id = m.mpa_id WHERE film_id = ?";
+        String sql = "SELECT f.* FROM films f WHERE film_id = ?";
         List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, id);
 
         if (films.isEmpty()) {
@@ -93,6 +138,59 @@ public class FilmDbStorage implements FilmStorage {
         return films.get(0);
     }
 
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = "SELECT f.* FROM films f " +
+                "WHERE f.film_id = ANY(?)";
+        return jdbcTemplate.query(sql, this::mapRowToFilm, (Object) ids.toArray(new Integer[0]));
+    }
+
+    // Читаются только столбцы выбранных полей; MPA берется из справочника по mpa_id
+    private static String projection(Set<FilmField> fields) {
+        StringBuilder columns = new StringBuilder("f.film_id");
+        for (FilmField field : fields) {
+            switch (field) {
+                case NAME -> columns.append(", f.title");
+                case DESCRIPTION -> columns.append(", f.description");
+                case RELEASE_DATE -> columns.append(", f.release_date");
+                case DURATION -> columns.append(", f.duration");
+                case MPA -> columns.append(", f.mpa_id");
+                case VERSION -> columns.append(", f.version");
+                default -> {
+                }
+            }
+        }
+        return "SELECT " + columns + " FROM films f";
+    }
+
+    private Film mapRowToFilm(ResultSet rs, Set<FilmField> fields) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        if (fields.contains(FilmField.NAME)) {
+            film.setName(rs.getString("title"));
+        }
+        if (fields.contains(FilmField.DESCRIPTION)) {
+            film.setDescription(rs.getString("description"));
+        }
+        if (fields.contains(FilmField.RELEASE_DATE)) {
+            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        }
+        if (fields.contains(FilmField.DURATION)) {
+            film.setDuration(rs.getInt("duration"));
+        }
+        if (fields.contains(FilmField.MPA)) {
+            film.setMpa(referenceDataCache.getMpa(rs.getInt("mpa_id")));
+        }
+        if (fields.contains(FilmField.VERSION)) {
+            film.setVersion(rs.getInt("version"));
+        }
+        return film;
+    }
+
     private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
         Film film = new Film();
         film.setId(rs.getInt("film_id"));
@@ -100,20 +198,11 @@ public class FilmDbStorage implements FilmStorage {
         film.setDescription(rs.getString("description"));
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
         film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getInt("version"));
 
-        MpaRating mpa = new MpaRating();
-        mpa.setId(rs.getInt("mpa_id"));
-        mpa.setName(rs.getString("mpa_name"));
-        film.setMpa(mpa);
+        // Общий экземпляр из справочника вместо нового объекта на каждую строку
+        film.setMpa(referenceDataCache.getMpa(rs.getInt("mpa_id")));
 
         return film;
     }
-
-    private void validateMpaExists(int mpaId) {
-        String sql = "SELECT COUNT(*) FROM mpa_ratings WHERE mpa_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, mpaId);
-        if (count == null || count == 0) {
-            throw new NotFoundException("MPA рейтинг с id " + mpaId + " не найден");
-        }
-    }
 }
\ No newline at end of file
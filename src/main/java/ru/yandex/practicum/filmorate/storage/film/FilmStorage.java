@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface FilmStorage {
     List<Film> getAllFilms();
@@ -11,4 +14,15 @@ public interface FilmStorage {
     Film updateFilm(Film film);
 
     Film getFilmById(int id);
+
+    List<Film> getFilmsByIds(Collection<Integer> ids);
+
+    // Хранилища без проекций возвращают фильмы целиком, лишние поля отбрасываются при сериализации
+    default List<Film> getAllFilms(Set<FilmField> fields) {
+        return getAllFilms();
+    }
+
+    default List<Film> getFilmsByIds(Collection<Integer> ids, Set<FilmField> fields) {
+        return getFilmsByIds(ids);
+    }
 }
\ No newline at end of file
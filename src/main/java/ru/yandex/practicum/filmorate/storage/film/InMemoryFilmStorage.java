@@ -4,9 +4,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
 @Slf4j
@@ -25,6 +28,7 @@ public class InMemoryFilmStorage implements FilmStorage {
     public Film addFilm(Film film) {
         log.info("Добавление фильма: {}", film);
         film.setId(nextId++);
+        film.setVersion(0);
         films.put(film.getId(), film);
         log.info("Фильм успешно добавлен с id: {}", film.getId());
         return film;
@@ -33,10 +37,18 @@ public class InMemoryFilmStorage implements FilmStorage {
     @Override
     public Film updateFilm(Film film) {
         log.info("Обновление фильма с id {}: {}", film.getId(), film);
-        if (!films.containsKey(film.getId())) {
+        Film current = films.get(film.getId());
+        if (current == null) {
             log.warn("Фильм с id {} не найден", film.getId());
             throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
         }
+        if (film.getVersion() != null && !film.getVersion().equals(current.getVersion())) {
+            log.warn("Фильм с id {} был изменен: текущая версия {}, передана {}",
+                    film.getId(), current.getVersion(), film.getVersion());
+            throw new ConflictException("Фильм с id " + film.getId() + " был изменен: текущая версия " +
+                    current.getVersion() + ", передана " + film.getVersion());
+        }
+        film.setVersion(current.getVersion() + 1);
         films.put(film.getId(), film);
         log.info("Фильм с id {} успешно обновлен", film.getId());
         return film;
@@ -51,4 +63,12 @@ public class InMemoryFilmStorage implements FilmStorage {
         }
         return film;
     }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage.mpa;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import java.sql.ResultSet;
@@ -11,6 +12,7 @@ import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class MpaDbStorage {
 
     private final JdbcTemplate jdbcTemplate;
@@ -32,9 +34,6 @@ public class MpaDbStorage {
     }
 
     private MpaRating mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        MpaRating mpa = new MpaRating();
-        mpa.setId(rs.getInt("mpa_id"));
-        mpa.setName(rs.getString("name"));
-        return mpa;
+        return new MpaRating(rs.getInt("mpa_id"), rs.getString("name"));
     }
 }
\ No newline at end of file
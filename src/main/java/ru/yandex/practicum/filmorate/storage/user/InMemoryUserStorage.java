@@ -4,9 +4,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
 @Slf4j
@@ -51,4 +53,12 @@ public class InMemoryUserStorage implements UserStorage {
         }
         return user;
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import java.sql.*;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -81,6 +82,16 @@ public class UserDbStorage implements UserStorage {
         return users.get(0);
     }
 
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?)";
+        return jdbcTemplate.query(sql, this::mapRowToUser, (Object) ids.toArray(new Integer[0]));
+    }
+
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
         User user = new User();
         user.setId(rs.getInt("user_id"));
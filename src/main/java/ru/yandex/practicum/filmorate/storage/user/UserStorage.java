@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
+import java.util.Collection;
 import java.util.List;
 
 public interface UserStorage {
@@ -11,4 +12,6 @@ public interface UserStorage {
     User updateUser(User user);
 
     User getUserById(int id);
+
+    List<User> getUsersByIds(Collection<Integer> ids);
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.web;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.LikeCountIndex;
+import ru.yandex.practicum.filmorate.model.LikeCountUpdate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Рассылка изменений числа лайков подписчикам SSE
+@Slf4j
+@Component
+public class LikeStreamBroadcaster {
+    private static final int MAX_FILMS_PER_SUBSCRIPTION = 1000;
+
+    private final LikeCountIndex likeCountIndex;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final Map<Integer, Set<Subscription>> subscribersByFilm = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Queue<Subscription> dirty = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher;
+    private final Executor sender;
+
+    @Autowired
+    public LikeStreamBroadcaster(LikeCountIndex likeCountIndex,
+                                 @Value("${filmorate.likes.stream.flush-interval-ms:500}") long flushIntervalMillis,
+                                 @Value("${filmorate.likes.stream.heartbeat-interval-ms:15000}") long heartbeatMillis,
+                                 @Value("${filmorate.likes.stream.timeout-ms:1800000}") long timeoutMillis,
+                                 @Value("${filmorate.likes.stream.queue-capacity:32}") int queueCapacity,
+                                 @Value("${filmorate.likes.stream.send-threads:4}") int sendThreads) {
+        this(likeCountIndex, flushIntervalMillis, heartbeatMillis, timeoutMillis, queueCapacity,
+                Executors.newFixedThreadPool(sendThreads, new SenderThreadFactory()));
+    }
+
+    LikeStreamBroadcaster(LikeCountIndex likeCountIndex, long flushIntervalMillis, long heartbeatMillis,
+                          long timeoutMillis, int queueCapacity, Executor sender) {
+        this.likeCountIndex = likeCountIndex;
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.sender = sender;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-stream-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty() || filmIds.size() > MAX_FILMS_PER_SUBSCRIPTION) {
+            throw new ValidationException("Подписаться можно на 1-" + MAX_FILMS_PER_SUBSCRIPTION + " фильмов");
+        }
+        return subscribe(filmIds, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(Collection<Integer> filmIds, SseEmitter emitter) {
+        Subscription subscription = new Subscription(emitter, Set.copyOf(filmIds), queueCapacity);
+        subscriptions.add(subscription);
+        for (Integer filmId : subscription.filmIds) {
+            subscribersByFilm.computeIfAbsent(filmId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+            // Первое событие содержит текущие значения всех фильмов подписки
+            subscription.pendingDeltas.put(filmId, 0);
+        }
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(error -> unsubscribe(subscription));
+        markDirty(subscription);
+        log.debug("Новая подписка на лайки {} фильмов, всего подписок: {}", filmIds.size(), subscriptions.size());
+        return emitter;
+    }
+
+    public void likesChanged(int filmId, int delta) {
+        Set<Subscription> subscribers = subscribersByFilm.get(filmId);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscription subscription : subscribers) {
+            subscription.pendingDeltas.merge(filmId, delta, Integer::sum);
+            markDirty(subscription);
+        }
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    void flush() {
+        Subscription subscription;
+        while ((subscription = dirty.poll()) != null) {
+            subscription.scheduled.set(false);
+            List<LikeCountUpdate> updates = new ArrayList<>();
+            for (Integer filmId : subscription.pendingDeltas.keySet()) {
+                Integer delta = subscription.pendingDeltas.remove(filmId);
+                if (delta != null) {
+                    updates.add(new LikeCountUpdate(filmId, likeCountIndex.getLikes(filmId), delta));
+                }
+            }
+            if (!updates.isEmpty()) {
+                enqueue(subscription, SseEmitter.event().name("likes").data(updates, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    // Комментарий раз в heartbeat-interval не дает прокси закрыть соединение и выявляет отключившихся клиентов
+    void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            enqueue(subscription, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        if (sender instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.emitter.complete();
+        }
+    }
+
+    // Переполненная очередь значит, что клиент не успевает читать: подписка снимается, а соединение закрывает
+    // поток отправки, когда текущая отправка завершится (закрытие ждет ее, поэтому не выполняется здесь)
+    private void enqueue(Subscription subscription, SseEmitter.SseEventBuilder event) {
+        if (subscription.overflowed) {
+            return;
+        }
+        if (!subscription.outbox.offer(event)) {
+            log.debug("Клиент потока лайков не успевает получать события, соединение закрывается");
+            unsubscribe(subscription);
+            subscription.overflowed = true;
+            subscription.outbox.clear();
+        }
+        scheduleDrain(subscription);
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (subscription.sending.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscription));
+        }
+    }
+
+    // Отправляет события клиента по порядку; за клиентом одновременно закреплено не больше одной задачи
+    private void drain(Subscription subscription) {
+        SseEmitter.SseEventBuilder event;
+        while (!subscription.overflowed && (event = subscription.outbox.poll()) != null) {
+            try {
+                // Запись блокирует поток, пока клиент не прочитает данные, но не дольше
+                // server.tomcat.connection-timeout: затем контейнер завершает ее ошибкой и закрывает соединение
+                subscription.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Клиент потока лайков отключился: {}", e.getMessage());
+                unsubscribe(subscription);
+                subscription.outbox.clear();
+                return;
+            }
+        }
+        if (subscription.overflowed) {
+            subscription.emitter.complete();
+            return;
+        }
+        subscription.sending.set(false);
+        // Событие могло прийти между последним poll и сбросом флага
+        if (!subscription.outbox.isEmpty()) {
+            scheduleDrain(subscription);
+        }
+    }
+
+    private void markDirty(Subscription subscription) {
+        if (subscription.scheduled.compareAndSet(false, true)) {
+            dirty.add(subscription);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        for (Integer filmId : subscription.filmIds) {
+            subscribersByFilm.computeIfPresent(filmId, (id, subscribers) -> {
+                subscribers.remove(subscription);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    private static final class Subscription {
+        private final SseEmitter emitter;
+        private final Set<Integer> filmIds;
+        private final Map<Integer, Integer> pendingDeltas = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final BlockingQueue<SseEmitter.SseEventBuilder> outbox;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        private Subscription(SseEmitter emitter, Set<Integer> filmIds, int queueCapacity) {
+            this.emitter = emitter;
+            this.filmIds = filmIds;
+            this.outbox = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    private static final class SenderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "like-stream-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
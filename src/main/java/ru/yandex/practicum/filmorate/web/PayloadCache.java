@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Кеш заранее сериализованных (и при необходимости сжатых gzip) ответов для часто запрашиваемых списков.
+// Запись хранит версию ресурса, с которой была построена; при изменении версии ответ строится заново.
+// Для каждого формата из Accept (JSON, CBOR, Smile) хранится своя запись. Ключи зависят от параметров запроса
+// (count, фильтры, поля), поэтому число записей ограничено max-entries: вытесняются давно не запрошенные.
+@Slf4j
+@Component
+public class PayloadCache {
+    // Ответы меньше этого размера не сжимаются: выигрыш в трафике меньше накладных расходов
+    private static final int MIN_GZIP_SIZE = 1024;
+
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    // Порядок важен: при Accept: */* выбирается первый формат
+    private final List<Format> formats;
+    private final Map<String, Payload> payloads;
+
+    @Autowired
+    public PayloadCache(ObjectMapper objectMapper,
+                        MappingJackson2CborHttpMessageConverter cborConverter,
+                        MappingJackson2SmileHttpMessageConverter smileConverter,
+                        @Value("${filmorate.payload-cache.max-entries:256}") int maxEntries) {
+        this.formats = List.of(
+                new Format(MediaType.APPLICATION_JSON, objectMapper),
+                new Format(MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper()),
+                new Format(smileConverter.getSupportedMediaTypes().get(0), smileConverter.getObjectMapper()));
+        this.payloads = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Payload> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    int size() {
+        return payloads.size();
+    }
+
+    // Условный GET по версии ресурса. ETag различает представления, а Vary выставляется до проверки,
+    // чтобы попасть и в ответ 304: иначе кеш мог бы отдать клиенту представление, которое тот не принимает
+    public boolean checkNotModified(ResourceVersions.Version version, WebRequest request) {
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().setHeader(HttpHeaders.VARY, VARY);
+        }
+        return request.checkNotModified(version.getETag(representation(request)), version.lastModified());
+    }
+
+    public ResponseEntity<byte[]> respond(String key, ResourceVersions.Version version,
+                                          Supplier<?> loader, WebRequest request) {
+        return respond(key, version, loader, null, request);
+    }
+
+    // filters - фильтры Jackson для выбора полей (null - все поля); ключ должен различать разные наборы полей
+    public ResponseEntity<byte[]> respond(String key, ResourceVersions.Version version, Supplier<?> loader,
+                                          FilterProvider filters, WebRequest request) {
+        Format format = negotiate(request);
+        String formatKey = key + "|" + format.mediaType().getSubtype();
+        Payload payload = payloads.get(formatKey);
+        if (payload == null || !payload.version().equals(version)) {
+            payload = serialize(format, version, loader.get(), filters);
+            payloads.put(formatKey, payload);
+            log.debug("Ответ для ключа {} сериализован заново: {} байт", formatKey, payload.body().length);
+        }
+        return payload.toResponse(acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+    }
+
+    // Формат из Accept и допустимость gzip: ответ, который допускает gzip, может прийти сжатым
+    // (здесь или сжатием контейнера), поэтому получает свой ETag
+    private String representation(WebRequest request) {
+        return negotiate(request).mediaType().getSubtype() + "-"
+                + (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) ? "gzip" : "identity");
+    }
+
+    private static Payload serialize(Format format, ResourceVersions.Version version, Object body,
+                                     FilterProvider filters) {
+        try {
+            ObjectMapper mapper = format.objectMapper();
+            byte[] bytes = filters == null
+                    ? mapper.writeValueAsBytes(body)
+                    : mapper.writer(filters).writeValueAsBytes(body);
+            byte[] gzip = bytes.length >= MIN_GZIP_SIZE ? gzip(bytes) : null;
+            return new Payload(version, format.mediaType(), bytes, gzip);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    // Первый тип из Accept, который совпадает с одним из форматов; иначе JSON
+    private Format negotiate(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return formats.get(0);
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType type : accepted) {
+                for (Format format : formats) {
+                    if (type.isCompatibleWith(format.mediaType())) {
+                        return format;
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            log.debug("Некорректный заголовок Accept: {}", accept);
+        }
+        return formats.get(0);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // gzip принимается, если он (или *) указан в Accept-Encoding с q > 0; явный gzip;q=0 важнее *
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 1 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                        && parameter.charAt(1) == '=') {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    private record Format(MediaType mediaType, ObjectMapper objectMapper) {
+    }
+
+    private record Payload(ResourceVersions.Version version, MediaType mediaType, byte[] body, byte[] gzip) {
+        ResponseEntity<byte[]> toResponse(boolean acceptsGzip) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .header(HttpHeaders.VARY, VARY);
+            if (acceptsGzip && gzip != null) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+            }
+            return response.body(body);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Следит за временем ожидания соединения в пуле Hikari (экспоненциальное скользящее среднее).
+// Если среднее выше filmorate.shedding.pool-wait-threshold-ms, база перегружена, и пишущие запросы
+// отклоняются сразу, а не встают в очередь за соединением. Без новых измерений среднее считается устаревшим
+// через STALE_AFTER, чтобы после всплеска нагрузки сброс запросов не залипал.
+@Slf4j
+@Component
+public class PoolWaitMonitor implements MetricsTrackerFactory {
+    private static final double ALPHA = 0.2;
+    private static final long STALE_AFTER = TimeUnit.SECONDS.toNanos(1);
+
+    private final long thresholdNanos;
+    private final LongSupplier clock;
+    private final AtomicLong averageBits = new AtomicLong(Double.doubleToLongBits(0));
+    private final AtomicLong lastSampleNanos;
+
+    @Autowired
+    public PoolWaitMonitor(@Value("${filmorate.shedding.pool-wait-threshold-ms:250}") long thresholdMs) {
+        this(thresholdMs, System::nanoTime);
+    }
+
+    PoolWaitMonitor(long thresholdMs, LongSupplier clock) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.clock = clock;
+        // До первого замера среднее считается устаревшим
+        this.lastSampleNanos = new AtomicLong(clock.getAsLong() - 2 * STALE_AFTER);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        log.info("Время ожидания соединений пула {} отслеживается для сброса нагрузки", poolName);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                // Соединение так и не получено - ожидание заведомо выше порога
+                record(Math.max(thresholdNanos, 1) * 2);
+            }
+        };
+    }
+
+    void record(long waitNanos) {
+        long bits;
+        double updated;
+        do {
+            bits = averageBits.get();
+            double average = Double.longBitsToDouble(bits);
+            updated = isStale() ? waitNanos : average + ALPHA * (waitNanos - average);
+        } while (!averageBits.compareAndSet(bits, Double.doubleToLongBits(updated)));
+        lastSampleNanos.set(clock.getAsLong());
+    }
+
+    public boolean isOverloaded() {
+        return thresholdNanos > 0 && !isStale() && Double.longBitsToDouble(averageBits.get()) > thresholdNanos;
+    }
+
+    public double getAverageWaitMillis() {
+        return isStale() ? 0 : Double.longBitsToDouble(averageBits.get()) / 1_000_000;
+    }
+
+    private boolean isStale() {
+        return clock.getAsLong() - lastSampleNanos.get() > STALE_AFTER;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.web;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+// Пропускает через delegate только долю запросов sampleRate (от 0.0 до 1.0), остальные идут дальше по цепочке
+// без него. Решение запоминается в атрибуте запроса: асинхронный запрос проходит фильтры повторно
+// и должен попасть в ту же ветку.
+public class SamplingFilter implements Filter {
+    private final Filter delegate;
+    private final DoubleSupplier sampleRate;
+    private final String attribute;
+
+    public SamplingFilter(Filter delegate, DoubleSupplier sampleRate) {
+        this.delegate = delegate;
+        this.sampleRate = sampleRate;
+        this.attribute = SamplingFilter.class.getName() + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (isSampled(request)) {
+            delegate.doFilter(request, response, chain);
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private boolean isSampled(ServletRequest request) {
+        if (request.getAttribute(attribute) instanceof Boolean sampled) {
+            return sampled;
+        }
+        boolean sampled = ThreadLocalRandom.current().nextDouble() < sampleRate.getAsDouble();
+        request.setAttribute(attribute, sampled);
+        return sampled;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.web;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Корзина токенов без блокировок в виде GCRA: вместо числа токенов хранится "теоретическое время прибытия"
+// следующего запроса, и каждый запрос сдвигает его на интервал восстановления одного токена одним CAS.
+// Запрос пропускается, пока это время опережает текущее не больше чем на burst интервалов.
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacityNanos = intervalNanos * Math.max(1, burst);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = (arrival - nowNanos > 0 ? arrival : nowNanos) + intervalNanos;
+            if (next - nowNanos > capacityNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Возвращает токен, взятый последним tryAcquire
+    void release() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+
+    // Корзина полностью восстановилась, и ее можно удалить без изменения поведения
+    boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() - nowNanos <= 0;
+    }
+
+    // Через сколько наносекунд освободится следующий токен
+    long nanosUntilNextPermit(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() + intervalNanos - capacityNanos - nowNanos);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Ограничение частоты пишущих запросов (лайки и дружба): корзина токенов на каждого клиента и общая на все приложение
+@Slf4j
+@Component
+public class WriteRateLimiter {
+    private final double clientPermitsPerSecond;
+    private final int clientBurst;
+    private final int maxTrackedClients;
+    private final TokenBucket global;
+    private final LongSupplier clock;
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public WriteRateLimiter(@Value("${filmorate.ratelimit.client.per-second:5}") double clientPermitsPerSecond,
+                            @Value("${filmorate.ratelimit.client.burst:20}") int clientBurst,
+                            @Value("${filmorate.ratelimit.global.per-second:1000}") double globalPermitsPerSecond,
+                            @Value("${filmorate.ratelimit.global.burst:2000}") int globalBurst,
+                            @Value("${filmorate.ratelimit.max-tracked-clients:100000}") int maxTrackedClients) {
+        this(clientPermitsPerSecond, clientBurst, globalPermitsPerSecond, globalBurst, maxTrackedClients,
+                System::nanoTime);
+    }
+
+    WriteRateLimiter(double clientPermitsPerSecond, int clientBurst, double globalPermitsPerSecond, int globalBurst,
+                     int maxTrackedClients, LongSupplier clock) {
+        this.clientPermitsPerSecond = clientPermitsPerSecond;
+        this.clientBurst = clientBurst;
+        this.maxTrackedClients = maxTrackedClients;
+        this.clock = clock;
+        this.global = new TokenBucket(globalPermitsPerSecond, globalBurst, clock.getAsLong());
+        log.info("Ограничение пишущих запросов: {}/с на клиента (до {} подряд), {}/с всего (до {} подряд), "
+                + "не больше {} клиентов", clientPermitsPerSecond, clientBurst, globalPermitsPerSecond, globalBurst,
+                maxTrackedClients);
+    }
+
+    // Возвращает 0, если запрос можно выполнить, иначе рекомендуемую паузу в секундах для Retry-After
+    public long tryAcquire(String clientKey) {
+        long now = clock.getAsLong();
+        // Сначала общая корзина: при общем переполнении корзины для новых клиентов не создаются,
+        // поэтому между очистками их число растет не быстрее общего лимита
+        if (!global.tryAcquire(now)) {
+            rejected.increment();
+            return retryAfterSeconds(global.nanosUntilNextPermit(now));
+        }
+        Client client = clients.computeIfAbsent(clientKey,
+                key -> new Client(new TokenBucket(clientPermitsPerSecond, clientBurst, now)));
+        client.lastUsedNanos = now;
+        if (!client.bucket.tryAcquire(now)) {
+            // Отклоненный запрос не должен расходовать общий лимит других клиентов
+            global.release();
+            rejected.increment();
+            return retryAfterSeconds(client.bucket.nanosUntilNextPermit(now));
+        }
+        return 0;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    int getTrackedClients() {
+        return clients.size();
+    }
+
+    // Удаляет полностью восстановившиеся корзины, а если их все равно больше max-tracked-clients -
+    // корзины клиентов, дольше всех не делавших запросов
+    @Scheduled(fixedDelayString = "${filmorate.ratelimit.cleanup-interval-ms:60000}")
+    void evictIdleBuckets() {
+        long now = clock.getAsLong();
+        clients.values().removeIf(client -> client.bucket.isFull(now));
+        int excess = clients.size() - maxTrackedClients;
+        if (excess > 0) {
+            clients.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastUsedNanos - now))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(clients::remove);
+        }
+    }
+
+    private static long retryAfterSeconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private static final class Client {
+        private final TokenBucket bucket;
+        private volatile long lastUsedNanos;
+
+        private Client(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Защищает дорогие пишущие запросы PUT /films/{id}/like/{userId} и PUT /users/{id}/friends/{friendId}:
+// при перегрузке базы отвечает 503, при превышении лимита клиента или общего лимита - 429.
+// Оба ответа отдаются до обращения к базе. Остальные запросы проходят без проверок.
+// Клиент определяется по адресу, а не по id пользователя из пути: id в пути выбирает сам клиент,
+// и со случайными id он каждый раз получал бы новую корзину. За прокси адрес клиента берется
+// из X-Forwarded-For только при server.forward-headers-strategy=native.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WriteThrottlingFilter extends OncePerRequestFilter {
+    private static final Pattern LIKE = Pattern.compile("^/films/\\d+/like/\\d+$");
+    private static final Pattern FRIEND = Pattern.compile("^/users/\\d+/friends/\\d+$");
+
+    private final WriteRateLimiter rateLimiter;
+    private final PoolWaitMonitor poolWaitMonitor;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"PUT".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!isLimited(request.getRequestURI().substring(request.getContextPath().length()))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (poolWaitMonitor.isOverloaded()) {
+            log.debug("Запрос {} отклонен: среднее ожидание соединения {} мс",
+                    request.getRequestURI(), poolWaitMonitor.getAverageWaitMillis());
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Service overloaded",
+                    "База данных перегружена, повторите запрос позже");
+            return;
+        }
+
+        String client = request.getRemoteAddr();
+        long retryAfter = rateLimiter.tryAcquire(client);
+        if (retryAfter > 0) {
+            log.debug("Запрос {} клиента {} отклонен лимитом частоты", request.getRequestURI(), client);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfter, "Too many requests",
+                    "Слишком много запросов, повторите через " + retryAfter + " с");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static boolean isLimited(String path) {
+        return LIKE.matcher(path).matches() || FRIEND.matcher(path).matches();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds,
+                        String error, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", error, "message", message));
+    }
+}
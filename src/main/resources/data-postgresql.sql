@@ -0,0 +1,24 @@
+-- Заполняем статусы дружбы
+INSERT INTO friendship_status (status_id, name) VALUES
+(1, 'PENDING'),
+(2, 'CONFIRMED')
+ON CONFLICT DO NOTHING;
+
+-- Заполняем рейтинги MPA
+INSERT INTO mpa_ratings (mpa_id, name, description) VALUES
+(1, 'G', 'Нет возрастных ограничений'),
+(2, 'PG', 'Детям рекомендуется смотреть с родителями'),
+(3, 'PG-13', 'Детям до 13 лет просмотр не желателен'),
+(4, 'R', 'Лицам до 17 лет просматривать фильм можно только в присутствии взрослого'),
+(5, 'NC-17', 'Лицам до 18 лет просмотр запрещён')
+ON CONFLICT DO NOTHING;
+
+-- Заполняем жанры
+INSERT INTO genres (genre_id, name) VALUES
+(1, 'Комедия'),
+(2, 'Драма'),
+(3, 'Мультфильм'),
+(4, 'Триллер'),
+(5, 'Документальный'),
+(6, 'Боевик')
+ON CONFLICT DO NOTHING;
@@ -22,9 +22,13 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE NOT NULL,
     duration INT NOT NULL,
     mpa_id INT NOT NULL,
+    version INT NOT NULL DEFAULT 0,
     CONSTRAINT fk_films_mpa FOREIGN KEY (mpa_id) REFERENCES mpa_ratings(mpa_id)
 );
 
+-- Версия фильма для оптимистичной блокировки (для баз, созданных до появления столбца)
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0;
+
 -- Создание таблицы жанров
 CREATE TABLE IF NOT EXISTS genres (
     genre_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -50,6 +54,22 @@ CREATE TABLE IF NOT EXISTS film_likes (
     CONSTRAINT fk_film_likes_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
 );
 
+-- Денормализованная сводка фильмов для GET /films и GET /films/popular (FilmSummaryRepository):
+-- название MPA, id жанров через запятую и число лайков хранятся в строке фильма
+CREATE TABLE IF NOT EXISTS film_summary (
+    film_id INT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    release_date DATE NOT NULL,
+    duration INT NOT NULL,
+    mpa_id INT NOT NULL,
+    mpa_name VARCHAR(10) NOT NULL,
+    genre_ids VARCHAR(255) NOT NULL DEFAULT '',
+    likes_count INT NOT NULL DEFAULT 0,
+    version INT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_film_summary_film FOREIGN KEY (film_id) REFERENCES films(film_id) ON DELETE CASCADE
+);
+
 -- Создание таблицы статусов дружбы
 CREATE TABLE IF NOT EXISTS friendship_status (
     status_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -69,9 +89,28 @@ CREATE TABLE IF NOT EXISTS friendships (
     CONSTRAINT fk_friendships_status FOREIGN KEY (status_id) REFERENCES friendship_status(status_id)
 );
 
+-- События, записанные в транзакции изменения (transactional outbox).
+-- EventOutboxRelay переносит их в журнал событий в порядке event_id и удаляет перенесенные
+CREATE TABLE IF NOT EXISTS event_outbox (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    created_at BIGINT NOT NULL,
+    film_id INT,
+    user_id INT,
+    friend_id INT
+);
+
 -- Создание индексов для улучшения производительности
-CREATE INDEX IF NOT EXISTS idx_film_likes_film ON film_likes(film_id);
-CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes(user_id);
+-- Покрывающие индексы для списков лайков фильма и пользователя (GET /films/{id}/likes, GET /users/{id}/likes):
+-- запросы с сортировкой по времени лайка читают только индекс
+DROP INDEX IF EXISTS idx_film_likes_film;
+DROP INDEX IF EXISTS idx_film_likes_user;
+CREATE INDEX IF NOT EXISTS idx_film_likes_film_created ON film_likes(film_id, created_at, user_id);
+CREATE INDEX IF NOT EXISTS idx_film_likes_user_created ON film_likes(user_id, created_at, film_id);
 CREATE INDEX IF NOT EXISTS idx_friendships_user ON friendships(user_id, status_id);
 CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships(friend_id, status_id);
-CREATE INDEX IF NOT EXISTS idx_films_release_date ON films(release_date);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_films_release_date ON films(release_date);
+CREATE INDEX IF NOT EXISTS idx_film_summary_likes ON film_summary(likes_count DESC, film_id);
+-- Популярные фильмы одного рейтинга и кандидаты по жанру (GET /films/popular?mpaId=, ?genreId=)
+CREATE INDEX IF NOT EXISTS idx_film_summary_mpa_likes ON film_summary(mpa_id, likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres(genre_id, film_id);
\ No newline at end of file
@@ -0,0 +1,24 @@
+-- Схема дополнительного шарда: только таблицы лайков и дружбы.
+-- Внешних ключей нет, фильмы и пользователи хранятся в основной базе
+
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id INT NOT NULL,
+    user_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id INT NOT NULL,
+    friend_id INT NOT NULL,
+    status_id INT NOT NULL DEFAULT 2,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+DROP INDEX IF EXISTS idx_film_likes_user;
+CREATE INDEX IF NOT EXISTS idx_film_likes_film_created ON film_likes(film_id, created_at, user_id);
+CREATE INDEX IF NOT EXISTS idx_film_likes_user_created ON film_likes(user_id, created_at, film_id);
+CREATE INDEX IF NOT EXISTS idx_friendships_user ON friendships(user_id, status_id);
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships(friend_id, status_id);
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import java.nio.file.Path;
+
+// Файлы приложения вне базы данных (журнал событий и снимок индексов) для тестов с полным контекстом: пишутся во временный
+// каталог теста, а не в ./db рабочей копии. Контекст таких тестов закрывается вместе с классом
+// (@DirtiesContext), чтобы файлы были закрыты до удаления каталога.
+public final class TestStorage {
+
+    private TestStorage() {
+    }
+
+    public static void register(DynamicPropertyRegistry registry, Path directory) {
+        registry.add("filmorate.events.dir", () -> directory.resolve("events").toString());
+        // Иначе при остановке контекста снимок индексов тестовой базы записывается в ./db и при следующем
+        // запуске приложения описывает другую базу
+        registry.add("filmorate.snapshot.path", () -> directory.resolve("index.snapshot").toString());
+    }
+}
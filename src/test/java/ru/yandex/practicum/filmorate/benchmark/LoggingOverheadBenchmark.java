@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+import org.zalando.logbook.core.BodyOnlyIfStatusAtLeastStrategy;
+import org.zalando.logbook.core.DefaultStrategy;
+import org.zalando.logbook.servlet.LogbookFilter;
+import ru.yandex.practicum.filmorate.TestStorage;
+import ru.yandex.practicum.filmorate.web.SamplingFilter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Сравнивает накладные расходы на запрос GET /films/{id} в трех режимах: HTTP-логирование Logbook выключено,
+// экономный режим из application.properties (выборка 10%, тела только для ошибок) и полное логирование,
+// как до его настройки (каждый запрос с телами, контроллеры пишут каждый запрос в лог).
+// Выборка основного фильтра выключена, а переключаемые фильтр выборки и стратегия Logbook берут настройки
+// из текущего режима, чтобы все режимы мерились в одном контексте.
+// Запуск: mvn test -Pbenchmark -Dtest=LoggingOverheadBenchmark
+@Slf4j
+@Tag("benchmark")
+@AutoConfigureMockMvc
+@DirtiesContext
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:logging-benchmark",
+        "filmorate.logging.http.sample-rate=0"})
+class LoggingOverheadBenchmark {
+    // Прогрев долгий: после смены режима JIT перекомпилирует фильтры, и короткий прогрев завышал экономный режим
+    private static final int WARMUP = 10_000;
+    private static final int ITERATIONS = 10_000;
+    private static final int ROUNDS = 5;
+    private static final String LOGBOOK_LOGGER = "org.zalando.logbook.Logbook";
+    private static final String CONTROLLER_LOGGER = "ru.yandex.practicum.filmorate.controller";
+
+    private static volatile Mode mode = Mode.OFF;
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        TestStorage.register(registry, storage);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private int filmId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String film = """
+                {"name": "Benchmark", "description": "%s", "releaseDate": "2000-01-01",
+                 "duration": 100, "mpa": {"id": 1}}
+                """.formatted("x".repeat(200));
+        String response = mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(film))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        filmId = objectMapper.readTree(response).get("id").asInt();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mode = Mode.OFF;
+        loggingSystem.setLogLevel(LOGBOOK_LOGGER, null);
+        loggingSystem.setLogLevel(CONTROLLER_LOGGER, null);
+    }
+
+    @Test
+    void compareRequestOverhead() throws Exception {
+        Map<Mode, Double> best = new EnumMap<>(Mode.class);
+        // Режимы чередуются, и берется лучший результат, чтобы прогрев JIT не искажал сравнение
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Mode next : Mode.values()) {
+                mode = next;
+                loggingSystem.setLogLevel(LOGBOOK_LOGGER, next == Mode.OFF ? LogLevel.INFO : LogLevel.TRACE);
+                loggingSystem.setLogLevel(CONTROLLER_LOGGER, next == Mode.FULL ? LogLevel.DEBUG : LogLevel.INFO);
+                best.merge(next, measure(), Math::min);
+            }
+        }
+
+        double off = best.get(Mode.OFF);
+        for (Mode measured : Mode.values()) {
+            log.info("GET /films/{id}, {}: {} мкс/запрос ({} к выключенному логированию)", measured.description,
+                    String.format("%.1f", best.get(measured)),
+                    String.format("%+.1f%%", (best.get(measured) - off) / off * 100));
+        }
+    }
+
+    private double measure() throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            mockMvc.perform(get("/films/{id}", filmId));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mockMvc.perform(get("/films/{id}", filmId));
+        }
+        return (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+    }
+
+    private enum Mode {
+        OFF("логирование выключено", 0.0, new DefaultStrategy()),
+        SAMPLED("экономный режим", 0.1, new BodyOnlyIfStatusAtLeastStrategy(400)),
+        FULL("полное логирование", 1.0, new DefaultStrategy());
+
+        private final String description;
+        private final double sampleRate;
+        private final Strategy strategy;
+
+        Mode(String description, double sampleRate, Strategy strategy) {
+            this.description = description;
+            this.sampleRate = sampleRate;
+            this.strategy = strategy;
+        }
+    }
+
+    @TestConfiguration
+    static class SwitchableLogbookConfig {
+
+        // Регистрируется рядом с фильтром из LogbookConfig, который при нулевой выборке ничего не логирует
+        @Bean
+        FilterRegistrationBean<SamplingFilter> switchableLogbookFilter(Logbook logbook) {
+            FilterRegistrationBean<SamplingFilter> registration =
+                    new FilterRegistrationBean<>(new SamplingFilter(new LogbookFilter(logbook), () -> mode.sampleRate));
+            registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+            registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+            return registration;
+        }
+
+        @Bean
+        Strategy switchableStrategy() {
+            return new Strategy() {
+                @Override
+                public HttpRequest process(HttpRequest request) throws IOException {
+                    return mode.strategy.process(request);
+                }
+
+                @Override
+                public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) throws IOException {
+                    mode.strategy.write(precorrelation, request, sink);
+                }
+
+                @Override
+                public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+                    return mode.strategy.process(request, response);
+                }
+
+                @Override
+                public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+                        throws IOException {
+                    mode.strategy.write(correlation, request, response, sink);
+                }
+            };
+        }
+    }
+}
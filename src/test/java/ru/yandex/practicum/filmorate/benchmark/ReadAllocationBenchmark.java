@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.TestStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Сколько байт выделяет в куче одно чтение фильмов: замер по счетчику выделений текущего потока
+// (com.sun.management.ThreadMXBean), MockMvc выполняет запрос в том же потоке.
+// Запуск: mvn test -Pbenchmark -Dtest=ReadAllocationBenchmark
+@Slf4j
+@Tag("benchmark")
+@AutoConfigureMockMvc
+@DirtiesContext
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:read-allocation-benchmark")
+class ReadAllocationBenchmark {
+    private static final int FILMS = 500;
+    private static final int BATCH = 100;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        TestStorage.register(registry, storage);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    private final List<Integer> batchIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(1980 + i % 40, 1 + i % 12, 1 + i % 28));
+            film.setDuration(90 + i % 60);
+            film.setMpa(new MpaRating(1 + i % 5, null));
+            // У каждого третьего фильма жанров нет
+            if (i % 3 != 0) {
+                Genre genre = new Genre(1 + i % 6, null);
+                film.setGenres(Set.of(genre));
+            }
+            int filmId = filmService.addFilm(film).getId();
+            if (batchIds.size() < BATCH) {
+                batchIds.add(filmId);
+            }
+        }
+    }
+
+    @Test
+    void measureAllocations() throws Exception {
+        report("FilmService.getAllFilms (" + FILMS + " фильмов)", () -> filmService.getAllFilms());
+        report("FilmService.getFilmsByIds (" + BATCH + " фильмов)", () -> filmService.getFilmsByIds(batchIds));
+        report("GET /films", () -> mockMvc.perform(get("/films")));
+        report("GET /films/{id}", () -> mockMvc.perform(get("/films/{id}", batchIds.get(0))));
+    }
+
+    private static void report(String name, Callable<?> read) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            read.call();
+        }
+        long threadId = Thread.currentThread().threadId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.call();
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - before;
+        log.info("{}: {} КБ на чтение", name, String.format("%.1f", allocated / 1024.0 / ITERATIONS));
+    }
+}
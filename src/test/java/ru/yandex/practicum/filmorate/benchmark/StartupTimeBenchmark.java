@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Время от запуска JVM с FilmorateApplication до первого успешного ответа GET /genres:
+// первый запуск на пустой базе (выполняются schema/data), повторный запуск на той же базе (инициализация пропускается)
+// и, если архив собран через mvn -Pcds package, повторный запуск с архивом CDS из target/cds.
+// Запуск: mvn test -Pbenchmark -Dtest=StartupTimeBenchmark
+@Slf4j
+@Tag("benchmark")
+class StartupTimeBenchmark {
+    private static final int ROUNDS = 3;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final Path CDS_DIR = Path.of("target", "cds");
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void measureTimeToFirstRequest() throws Exception {
+        String classpath = System.getProperty("java.class.path");
+        List<Long> firstBoot = new ArrayList<>();
+        List<Long> repeatedBoot = new ArrayList<>();
+        List<Long> cdsBoot = new ArrayList<>();
+        boolean cds = Files.exists(CDS_DIR.resolve("application.jsa"));
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Path dataDir = Files.createDirectory(directory.resolve("round-" + round));
+            firstBoot.add(boot(dataDir, classpath, List.of()));
+            repeatedBoot.add(boot(dataDir, classpath, List.of()));
+            if (cds) {
+                cdsBoot.add(boot(dataDir, Files.readString(CDS_DIR.resolve("classpath.txt")).trim(),
+                        List.of("-XX:SharedArchiveFile=" + CDS_DIR.resolve("application.jsa"))));
+            }
+        }
+
+        log.info("Первый запуск (инициализация схемы): {} мс", best(firstBoot));
+        log.info("Повторный запуск (схема актуальна): {} мс", best(repeatedBoot));
+        if (cds) {
+            log.info("Повторный запуск с архивом CDS: {} мс", best(cdsBoot));
+        } else {
+            log.info("Архив CDS не найден, соберите его через mvn -Pcds package");
+        }
+    }
+
+    private long boot(Path dataDir, String classpath, List<String> jvmOptions) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", classpath, FilmorateApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("filmorate").toAbsolutePath(),
+                "--filmorate.events.dir=" + dataDir.resolve("events").toAbsolutePath(),
+                "--filmorate.snapshot.path=" + dataDir.resolve("index.snapshot").toAbsolutePath()));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(dataDir.resolve("boot.log").toFile())
+                .start();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/genres")).build();
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Приложение завершилось, см. " + dataDir.resolve("boot.log"));
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (ConnectException e) {
+                    // сервер еще не слушает порт
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Приложение не ответило за " + TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long best(List<Long> timings) {
+        return timings.stream().mapToLong(Long::longValue).min().orElseThrow();
+    }
+}
@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.TestStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Сравнивает JSON, CBOR и Smile для GET /films и GET /films/popular: размер ответа (через MockMvc
+// с заголовком Accept) и время сериализации того же списка фильмов маппером каждого формата.
+// Запуск: mvn test -Pbenchmark -Dtest=WireFormatBenchmark
+@Slf4j
+@Tag("benchmark")
+@AutoConfigureMockMvc
+@DirtiesContext
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:wire-format-benchmark")
+class WireFormatBenchmark {
+    private static final int FILMS = 500;
+    private static final int USERS = 50;
+    private static final int POPULAR_COUNT = 100;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        TestStorage.register(registry, storage);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    private Map<MediaType, ObjectMapper> formats;
+
+    @BeforeEach
+    void setUp() {
+        formats = new LinkedHashMap<>();
+        formats.put(MediaType.APPLICATION_JSON, objectMapper);
+        formats.put(MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper());
+        formats.put(smileConverter.getSupportedMediaTypes().get(0), smileConverter.getObjectMapper());
+
+        for (int i = 1; i <= USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userService.addUser(user);
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма номер " + i + " для сравнения форматов ответа");
+            film.setReleaseDate(LocalDate.of(1980 + i % 40, 1 + i % 12, 1 + i % 28));
+            film.setDuration(90 + i % 60);
+            film.setMpa(new MpaRating(1 + i % 5, null));
+            Genre first = new Genre(1 + i % 6, null);
+            Genre second = new Genre(1 + (i + 1) % 6, null);
+            film.setGenres(Set.of(first, second));
+            int filmId = filmService.addFilm(film).getId();
+            for (int userId = 1; userId <= i % USERS; userId++) {
+                filmService.addLike(filmId, userId);
+            }
+        }
+    }
+
+    @Test
+    void compareFormats() throws Exception {
+        compare("/films", filmService.getAllFilms());
+        compare("/films/popular?count=" + POPULAR_COUNT, filmService.getPopularFilms(POPULAR_COUNT));
+    }
+
+    private void compare(String uri, List<Film> films) throws Exception {
+        double jsonMicros = 0;
+        int jsonSize = 0;
+        for (Map.Entry<MediaType, ObjectMapper> format : formats.entrySet()) {
+            int size = mockMvc.perform(get(uri).header(HttpHeaders.ACCEPT, format.getKey().toString()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray().length;
+            double micros = measure(format.getValue(), films);
+            if (jsonSize == 0) {
+                jsonSize = size;
+                jsonMicros = micros;
+            }
+            log.info("GET {}, {}: {} байт ({}% от JSON), сериализация {} мкс ({}% от JSON)", uri, format.getKey(), size,
+                    Math.round(size * 100.0 / jsonSize), String.format("%.1f", micros),
+                    Math.round(micros * 100 / jsonMicros));
+        }
+    }
+
+    // Лучший результат из нескольких раундов, чтобы прогрев JIT не искажал сравнение
+    private static double measure(ObjectMapper mapper, List<Film> films) throws Exception {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < WARMUP; i++) {
+                mapper.writeValueAsBytes(films);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                mapper.writeValueAsBytes(films);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1_000.0 / ITERATIONS);
+        }
+        return best;
+    }
+}
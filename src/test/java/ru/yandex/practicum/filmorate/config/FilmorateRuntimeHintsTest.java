@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmorateEvent;
+import ru.yandex.practicum.filmorate.model.LikeCountUpdate;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmorateRuntimeHintsTest {
+    private RuntimeHints hints;
+
+    @BeforeEach
+    public void setUp() {
+        hints = new RuntimeHints();
+        new FilmorateRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    public void testModelsAreRegisteredForJsonBinding() throws NoSuchMethodException {
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(Film.class.getMethod("getName"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(Film.class.getMethod("setName", String.class)))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(FilmorateEvent.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(LikeCountUpdate.class)).accepts(hints);
+    }
+
+    @Test
+    public void testScriptsAndDriverAreIncluded() {
+        assertThat(RuntimeHintsPredicates.resource().forResource("schema-h2.sql")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("data-postgresql.sql")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("schema-shard-h2.sql")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(org.h2.Driver.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import javax.sql.DataSource;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaDataSourceConfigTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(ReplicaDataSourceConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:h2:mem:config-primary",
+                    "spring.datasource.username=sa",
+                    "filmorate.datasource.replicas=jdbc:h2:mem:config-replica",
+                    "spring.datasource.hikari.maximum-pool-size=3",
+                    "spring.datasource.hikari.connection-timeout=1500");
+
+    @Test
+    void shouldApplyHikariSettingsToPrimaryAndReplicaPools() {
+        contextRunner.run(context -> {
+            HikariDataSource primary = context.getBean("primaryDataSource", HikariDataSource.class);
+            assertThat(primary.getMaximumPoolSize()).isEqualTo(3);
+            assertThat(primary.getConnectionTimeout()).isEqualTo(1500);
+
+            DataSource routing = ((LazyConnectionDataSourceProxy) context.getBean("dataSource", DataSource.class))
+                    .getTargetDataSource();
+            assertThat(((ReplicaRoutingDataSource) routing).getResolvedDataSources())
+                    .hasSize(2)
+                    .allSatisfy((key, pool) -> {
+                        assertThat(((HikariDataSource) pool).getMaximumPoolSize()).isEqualTo(3);
+                        assertThat(((HikariDataSource) pool).getConnectionTimeout()).isEqualTo(1500);
+                    });
+        });
+    }
+
+    @Test
+    void shouldCloseReplicaPoolsWithContext() {
+        HikariDataSource[] replica = new HikariDataSource[1];
+        contextRunner.run(context -> {
+            DataSource routing = ((LazyConnectionDataSourceProxy) context.getBean("dataSource", DataSource.class))
+                    .getTargetDataSource();
+            replica[0] = (HikariDataSource) ((ReplicaRoutingDataSource) routing).getResolvedDataSources()
+                    .get("replica-0");
+            assertThat(replica[0].isClosed()).isFalse();
+        });
+        assertThat(replica[0].isClosed()).isTrue();
+    }
+}
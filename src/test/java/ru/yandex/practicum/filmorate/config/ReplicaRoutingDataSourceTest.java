@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Основная база и реплики - отдельные базы H2 с разным содержимым, поэтому по прочитанному значению видно,
+// куда было направлено соединение
+class ReplicaRoutingDataSourceTest {
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase firstReplica;
+    private EmbeddedDatabase secondReplica;
+    private final AtomicLong clock = new AtomicLong();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = createDatabase("primary");
+        firstReplica = createDatabase("replica-1");
+        secondReplica = createDatabase("replica-2");
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica), 1000, clock::get));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingContext.clear();
+        primary.shutdown();
+        firstReplica.shutdown();
+        secondReplica.shutdown();
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsToReplicasRoundRobin() {
+        assertThat(readInReadOnlyTransaction()).isEqualTo("replica-1");
+        assertThat(readInReadOnlyTransaction()).isEqualTo("replica-2");
+        assertThat(readInReadOnlyTransaction()).isEqualTo("replica-1");
+    }
+
+    @Test
+    void shouldRouteWritesAndNonTransactionalCallsToPrimary() {
+        assertThat(readInWriteTransaction()).isEqualTo("primary");
+        ReplicaRoutingContext.clear();
+        assertThat(readNode()).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldReadFromPrimaryAfterWriteUntilRequestEnds() {
+        ReplicaRoutingContext.openRequestScope();
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = 'primary-updated'"));
+
+        assertThat(readInReadOnlyTransaction()).isEqualTo("primary-updated");
+
+        ReplicaRoutingContext.clear();
+        advanceMillis(1000);
+        assertThat(readInReadOnlyTransaction()).startsWith("replica");
+    }
+
+    // Следующий запрос после записи не должен прочитать отстающую реплику
+    @Test
+    void shouldReadFromPrimaryForWindowAfterCommit() {
+        ReplicaRoutingContext.openRequestScope();
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = 'primary-updated'"));
+        ReplicaRoutingContext.clear();
+
+        advanceMillis(999);
+        assertThat(readInReadOnlyTransaction()).isEqualTo("primary-updated");
+        advanceMillis(1);
+        assertThat(readInReadOnlyTransaction()).startsWith("replica");
+    }
+
+    @Test
+    void shouldNotOpenWindowForRolledBackWrite() {
+        writeTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = 'primary-updated'");
+            status.setRollbackOnly();
+        });
+
+        assertThat(readInReadOnlyTransaction()).startsWith("replica");
+    }
+
+    @Test
+    void shouldReadFromPrimaryInsideCallOnPrimary() {
+        assertThat(ReplicaRoutingContext.callOnPrimary(this::readInReadOnlyTransaction)).isEqualTo("primary");
+
+        assertThat(ReplicaRoutingContext.isPinnedToPrimary()).isFalse();
+        assertThat(readInReadOnlyTransaction()).startsWith("replica");
+    }
+
+    @Test
+    void shouldReleasePrimaryAfterWriteTransactionOutsideRequest() {
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = 'primary-updated'"));
+
+        assertThat(ReplicaRoutingContext.isPinnedToPrimary()).isFalse();
+        advanceMillis(1000);
+        assertThat(readInReadOnlyTransaction()).startsWith("replica");
+    }
+
+    @Test
+    void shouldReleasePrimaryAfterRolledBackWriteOutsideRequest() {
+        writeTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = 'primary-updated'");
+            status.setRollbackOnly();
+        });
+
+        assertThat(ReplicaRoutingContext.isPinnedToPrimary()).isFalse();
+    }
+
+    private void advanceMillis(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private String readInReadOnlyTransaction() {
+        return readOnlyTransaction.execute(status -> readNode());
+    }
+
+    private String readInWriteTransaction() {
+        return writeTransaction.execute(status -> readNode());
+    }
+
+    private String readNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static EmbeddedDatabase createDatabase(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(name)
+                .build();
+        new JdbcTemplate(database).execute("CREATE TABLE node (name VARCHAR(50))");
+        new JdbcTemplate(database).update("INSERT INTO node (name) VALUES (?)", name);
+        return database;
+    }
+}
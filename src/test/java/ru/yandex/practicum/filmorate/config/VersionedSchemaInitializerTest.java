@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.SqlDialect;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionedSchemaInitializerTest {
+
+    @TempDir
+    Path directory;
+
+    private DataSource dataSource;
+    private DatabaseInitializationSettings settings;
+    private Path schema;
+    private Path data;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dataSource = DataSourceBuilder.create()
+                .url("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")
+                .username("sa")
+                .build();
+        schema = Files.writeString(directory.resolve("schema.sql"),
+                "CREATE TABLE IF NOT EXISTS genres (genre_id INT PRIMARY KEY, name VARCHAR(50));");
+        data = Files.writeString(directory.resolve("data.sql"),
+                "MERGE INTO genres KEY (genre_id) VALUES (1, 'Комедия');");
+
+        settings = new DatabaseInitializationSettings();
+        settings.setSchemaLocations(List.of("optional:" + schema.toUri()));
+        settings.setDataLocations(List.of("optional:" + data.toUri()));
+        settings.setMode(DatabaseInitializationMode.ALWAYS);
+    }
+
+    @Test
+    public void testScriptsAreSkippedWhenSchemaIsCurrent() {
+        assertThat(new VersionedSchemaInitializer(dataSource, settings, SqlDialect.H2).initializeDatabase()).isTrue();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM genres");
+
+        assertThat(new VersionedSchemaInitializer(dataSource, settings, SqlDialect.H2).initializeDatabase()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class)).isZero();
+    }
+
+    @Test
+    public void testChangedScriptsAreAppliedAgain() throws IOException {
+        VersionedSchemaInitializer initializer = new VersionedSchemaInitializer(dataSource, settings, SqlDialect.H2);
+        initializer.initializeDatabase();
+        String firstChecksum = initializer.scriptsChecksum();
+
+        Files.writeString(data, "\nMERGE INTO genres KEY (genre_id) VALUES (2, 'Драма');",
+                StandardOpenOption.APPEND);
+        VersionedSchemaInitializer changed = new VersionedSchemaInitializer(dataSource, settings, SqlDialect.H2);
+
+        assertThat(changed.initializeDatabase()).isTrue();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT checksum FROM schema_version WHERE id = 1", String.class))
+                .isEqualTo(changed.scriptsChecksum())
+                .isNotEqualTo(firstChecksum);
+    }
+
+    @Test
+    public void testVersionWrittenByAnotherInstanceDuringInitializationIsOverwritten() throws IOException {
+        // Скрипт схемы выполняется между проверкой версии и ее записью: так выглядит второй экземпляр,
+        // успевший записать версию, пока этот выполнял скрипты
+        Files.writeString(schema, "\nCREATE TABLE IF NOT EXISTS schema_version (id INT PRIMARY KEY, " +
+                "checksum VARCHAR(64) NOT NULL, applied_at TIMESTAMP NOT NULL);" +
+                "\nMERGE INTO schema_version KEY (id) VALUES (1, 'other', CURRENT_TIMESTAMP);",
+                StandardOpenOption.APPEND);
+        VersionedSchemaInitializer initializer = new VersionedSchemaInitializer(dataSource, settings, SqlDialect.H2);
+
+        assertThat(initializer.initializeDatabase()).isTrue();
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SELECT checksum FROM schema_version WHERE id = 1",
+                String.class)).isEqualTo(initializer.scriptsChecksum());
+    }
+
+    @Test
+    public void testNothingIsDoneWhenInitializationIsDisabled() {
+        settings.setMode(DatabaseInitializationMode.NEVER);
+
+        assertThat(new VersionedSchemaInitializer(dataSource, settings, SqlDialect.H2).initializeDatabase()).isFalse();
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_NAME = 'SCHEMA_VERSION'", Integer.class)).isZero();
+    }
+}
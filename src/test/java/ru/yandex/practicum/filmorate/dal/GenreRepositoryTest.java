@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({GenreRepository.class, FilmDbStorage.class, ReferenceDataCache.class})
+class GenreRepositoryTest {
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testSaveSameGenresWritesNothing() {
+        Film film = createFilm();
+        genreRepository.saveFilmGenres(film.getId(), Set.of(new Genre(1, null), new Genre(2, null)));
+        clearInvocations(jdbcTemplate);
+
+        genreRepository.saveFilmGenres(film.getId(), Set.of(new Genre(2, null), new Genre(1, null)));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        assertThat(loadGenreIds(film)).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    public void testSaveGenresAppliesOnlyDelta() {
+        Film film = createFilm();
+        genreRepository.saveFilmGenres(film.getId(), Set.of(new Genre(1, null), new Genre(2, null)));
+        clearInvocations(jdbcTemplate);
+
+        genreRepository.saveFilmGenres(film.getId(), Set.of(new Genre(2, null), new Genre(3, null)));
+
+        verify(jdbcTemplate).batchUpdate(eq("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?"),
+                argThat((List<Object[]> rows) -> singleRow(rows, film.getId(), 1)));
+        verify(jdbcTemplate).batchUpdate(eq("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)"),
+                argThat((List<Object[]> rows) -> singleRow(rows, film.getId(), 3)));
+        assertThat(loadGenreIds(film)).containsExactlyInAnyOrder(2, 3);
+    }
+
+    @Test
+    public void testSaveEmptyGenresRemovesAll() {
+        Film film = createFilm();
+        genreRepository.saveFilmGenres(film.getId(), Set.of(new Genre(1, null)));
+
+        genreRepository.saveFilmGenres(film.getId(), null);
+
+        assertThat(loadGenreIds(film)).isEmpty();
+    }
+
+    @Test
+    public void testReadsReturnSharedReferenceInstances() {
+        Film film = createFilm();
+        genreRepository.saveFilmGenres(film.getId(), Set.of(new Genre(1, null), new Genre(2, null)));
+
+        Film first = filmStorage.getFilmById(film.getId());
+        Film second = filmStorage.getFilmsByIds(List.of(film.getId()), FilmField.DEFAULT).get(0);
+        genreRepository.loadGenresForFilm(first);
+        genreRepository.loadGenresForFilms(List.of(second));
+
+        assertThat(first.getMpa()).isSameAs(referenceDataCache.getMpa(1)).isSameAs(second.getMpa());
+        assertThat(first.getGenres()).hasSize(2).allSatisfy(genre ->
+                assertThat(genre).isSameAs(referenceDataCache.getGenre(genre.getId())));
+        assertThat(second.getGenres()).hasSize(2).allSatisfy(genre ->
+                assertThat(genre).isSameAs(referenceDataCache.getGenre(genre.getId())));
+    }
+
+    private static boolean singleRow(List<Object[]> rows, Object... expected) {
+        return rows.size() == 1 && Arrays.equals(rows.get(0), expected);
+    }
+
+    private List<Integer> loadGenreIds(Film film) {
+        genreRepository.loadGenresForFilm(film);
+        return film.getGenres().stream().map(Genre::getId).toList();
+    }
+
+    private Film createFilm() {
+        Film film = new Film();
+        film.setName("Test Film");
+        film.setDescription("Test Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+
+        film.setMpa(new MpaRating(1, null));
+
+        return filmStorage.addFilm(film);
+    }
+}
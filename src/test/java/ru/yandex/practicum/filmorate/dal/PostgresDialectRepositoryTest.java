@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import ru.yandex.practicum.filmorate.config.ShardingConfig;
+import ru.yandex.practicum.filmorate.config.SqlDialectConfig;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Локальная замена PostgreSQL: H2 в режиме совместимости с postgresql-схемой и postgresql-диалектом
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pg;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.sql.init.platform=postgresql",
+        "filmorate.sql.dialect=postgresql"
+})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({SqlDialectConfig.class, ShardingConfig.class, FilmDbStorage.class, UserDbStorage.class, FilmLikesRepository.class,
+        FriendshipRepository.class, GenreRepository.class, ReferenceDataCache.class})
+class PostgresDialectRepositoryTest {
+
+    private final SqlDialect sqlDialect;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FilmLikesRepository filmLikesRepository;
+    private final FriendshipRepository friendshipRepository;
+    private final GenreRepository genreRepository;
+
+    @Test
+    public void testDialectIsPostgresql() {
+        assertThat(sqlDialect).isEqualTo(SqlDialect.POSTGRESQL);
+    }
+
+    @Test
+    public void testDuplicateLikeIsRejected() {
+        Film film = filmStorage.addFilm(createFilm("Film"));
+        User user = userStorage.addUser(createUser("user"));
+
+        filmLikesRepository.addLike(film.getId(), user.getId());
+
+        assertThatThrownBy(() -> filmLikesRepository.addLike(film.getId(), user.getId()))
+                .isInstanceOf(ValidationException.class);
+        assertThat(filmLikesRepository.getLikeCounts()).containsEntry(film.getId(), 1);
+    }
+
+    @Test
+    public void testDuplicateFriendIsRejected() {
+        User user = userStorage.addUser(createUser("first"));
+        User friend = userStorage.addUser(createUser("second"));
+
+        friendshipRepository.addFriend(user.getId(), friend.getId());
+
+        assertThatThrownBy(() -> friendshipRepository.addFriend(user.getId(), friend.getId()))
+                .isInstanceOf(ValidationException.class);
+        assertThat(friendshipRepository.getFriends(user.getId()))
+                .extracting(User::getId)
+                .containsExactly(friend.getId());
+    }
+
+    @Test
+    public void testPopularFilmsAndArrayParameters() {
+        Film liked = filmStorage.addFilm(createFilm("Liked"));
+        Genre genre = new Genre(1, null);
+        genreRepository.insertFilmGenres(liked.getId(), Set.of(genre));
+        Film other = filmStorage.addFilm(createFilm("Other"));
+        User user = userStorage.addUser(createUser("fan"));
+        filmLikesRepository.addLike(liked.getId(), user.getId());
+
+        List<Film> popular = filmLikesRepository.getPopularFilms(10);
+        assertThat(popular).extracting(Film::getId).startsWith(liked.getId());
+
+        List<Film> films = filmStorage.getFilmsByIds(List.of(liked.getId(), other.getId()));
+        genreRepository.loadGenresForFilms(films);
+        assertThat(films).extracting(Film::getId).containsExactlyInAnyOrder(liked.getId(), other.getId());
+        assertThat(films).filteredOn(film -> film.getId() == liked.getId())
+                .flatExtracting(Film::getGenres)
+                .extracting(Genre::getId)
+                .containsExactly(1);
+    }
+
+    @Test
+    public void testFilmLikesArePagedByCursor() {
+        Film film = filmStorage.addFilm(createFilm("Paged"));
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = userStorage.addUser(createUser("liker" + i));
+            filmLikesRepository.addLike(film.getId(), user.getId());
+            userIds.add(user.getId());
+        }
+
+        List<LikeCursor> firstPage = filmLikesRepository.getLikesOfFilm(film.getId(), null, 2);
+        List<LikeCursor> nextPage = filmLikesRepository.getLikesOfFilm(film.getId(),
+                LikeCursor.decode(firstPage.get(1).encode()), 2);
+
+        assertThat(firstPage).hasSize(2);
+        assertThat(nextPage).hasSize(1);
+        assertThat(firstPage.stream().map(LikeCursor::id).toList())
+                .doesNotContain(nextPage.get(0).id());
+        assertThat(filmLikesRepository.getUserIdsWhoLiked(film.getId())).containsExactlyInAnyOrderElementsOf(userIds);
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+
+        film.setMpa(new MpaRating(1, null));
+        return film;
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
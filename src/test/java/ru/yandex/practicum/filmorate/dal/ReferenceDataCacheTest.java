@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+class ReferenceDataCacheTest {
+    private static final long MIN_RELOAD_INTERVAL = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private JdbcTemplate queries;
+    private ReferenceDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        queries = spy(jdbcTemplate);
+        cache = new ReferenceDataCache(queries, MIN_RELOAD_INTERVAL, now::get);
+        assertThat(cache.getMpa(1).getName()).isEqualTo("G");
+        clearInvocations(queries);
+    }
+
+    @Test
+    public void testUnknownIdsReloadAtMostOncePerInterval() {
+        now.addAndGet(MIN_RELOAD_INTERVAL);
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.getMpa(999)).isNull();
+            assertThat(cache.getGenre(999)).isNull();
+            assertThat(cache.containsAllGenres(Set.of(1, 999))).isFalse();
+        }
+
+        // Одна загрузка - два запроса: MPA и жанры
+        verify(queries, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    public void testAddedGenreIsFoundAfterInterval() {
+        jdbcTemplate.update("INSERT INTO genres (genre_id, name) VALUES (99, 'Новый')");
+        assertThat(cache.getGenre(99)).isNull();
+
+        now.addAndGet(MIN_RELOAD_INTERVAL);
+        assertThat(cache.getGenre(99).getName()).isEqualTo("Новый");
+        // Уже загруженные записи отдаются теми же экземплярами до следующей загрузки
+        assertThat(cache.getGenre(1)).isSameAs(cache.getGenre(1));
+    }
+}
@@ -0,0 +1,297 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.config.ShardingConfig;
+import ru.yandex.practicum.filmorate.config.SqlDialectConfig;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.web.PoolWaitMonitor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = "filmorate.sharding.shards=" +
+        "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({SqlDialectConfig.class, ShardingConfig.class, FilmDbStorage.class, UserDbStorage.class,
+        FilmLikesRepository.class, FriendshipRepository.class, ShardRebalancer.class, ReferenceDataCache.class,
+        PoolWaitMonitor.class})
+class ShardedRepositoryTest {
+
+    private final ShardRouter shardRouter;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FilmLikesRepository filmLikesRepository;
+    private final FriendshipRepository friendshipRepository;
+    private final ShardRebalancer shardRebalancer;
+    private final PlatformTransactionManager transactionManager;
+    private final PoolWaitMonitor poolWaitMonitor;
+
+    // Основная база откатывается после каждого теста, дополнительные шарды нужно чистить вручную
+    @BeforeEach
+    public void cleanShards() {
+        for (int i = 1; i < shardRouter.shardCount(); i++) {
+            shardRouter.shard(i).update("DELETE FROM film_likes");
+            shardRouter.shard(i).update("DELETE FROM friendships");
+        }
+    }
+
+    @Test
+    public void testShardPoolsReportConnectionWaits() {
+        for (int i = 1; i < shardRouter.shardCount(); i++) {
+            assertThat(shardRouter.shard(i).getDataSource())
+                    .isInstanceOfSatisfying(HikariDataSource.class,
+                            pool -> assertThat(pool.getMetricsTrackerFactory()).isSameAs(poolWaitMonitor));
+        }
+    }
+
+    @Test
+    public void testPopularFilmsAreMergedAcrossShards() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            films.add(filmStorage.addFilm(createFilm("Film " + i)));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(userStorage.addUser(createUser("user" + i)));
+        }
+        // Фильм i получает i лайков, фильм 0 остается без лайков
+        for (int i = 1; i < films.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                filmLikesRepository.addLike(films.get(i).getId(), users.get(j).getId());
+            }
+        }
+
+        assertThat(films.stream().map(film -> shardRouter.shardIndexFor(film.getId())).distinct().count())
+                .isGreaterThan(1);
+        assertThat(filmLikesRepository.getPopularFilms(3))
+                .extracting(Film::getId)
+                .containsExactly(films.get(5).getId(), films.get(4).getId(), films.get(3).getId());
+        assertThat(filmLikesRepository.getPopularFilms(10))
+                .extracting(Film::getId)
+                .hasSize(6)
+                .endsWith(films.get(0).getId());
+        assertThat(filmLikesRepository.getLikeCounts())
+                .containsEntry(films.get(5).getId(), 5)
+                .doesNotContainKey(films.get(0).getId());
+        assertThat(filmLikesRepository.getLikeChecksum())
+                .isEqualTo(LikeChecksum.of(filmLikesRepository.getLikeCounts()));
+    }
+
+    @Test
+    public void testFilteredPopularFilmsCountLikesAcrossShards() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Film film = createFilm("Filtered " + i);
+            film.setMpa(new MpaRating(i % 2 == 0 ? 1 : 2, null));
+            films.add(filmStorage.addFilm(film));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.addUser(createUser("filter" + i)));
+        }
+        // Фильмы с MPA 1 - с индексами 0 и 2: у второго больше лайков
+        filmLikesRepository.addLike(films.get(0).getId(), users.get(0).getId());
+        for (User user : users) {
+            filmLikesRepository.addLike(films.get(2).getId(), user.getId());
+            filmLikesRepository.addLike(films.get(3).getId(), user.getId());
+        }
+
+        assertThat(filmLikesRepository.getPopularFilms(10, null, 1))
+                .extracting(Film::getId)
+                .containsExactly(films.get(2).getId(), films.get(0).getId());
+        assertThat(filmLikesRepository.getPopularFilms(1, null, 2))
+                .extracting(Film::getId)
+                .containsExactly(films.get(3).getId());
+    }
+
+    // Шард не участвует в транзакции основной базы: при ее откате изменение лайка отменяется отдельным запросом
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testLikeChangesInShardAreUndoneOnRollback() {
+        int filmId = 1;
+        while (shardRouter.shardIndexFor(filmId) == 0) {
+            filmId++;
+        }
+        int likedFilmId = filmId;
+        JdbcTemplate shard = shardRouter.forKey(likedFilmId);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            filmLikesRepository.addLike(likedFilmId, 7);
+            status.setRollbackOnly();
+        });
+        assertThat(countLikes(shard, likedFilmId)).isZero();
+
+        LocalDateTime likedAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        shard.update("INSERT INTO film_likes (film_id, user_id, created_at) VALUES (?, ?, ?)", likedFilmId, 7, likedAt);
+        transaction.executeWithoutResult(status -> {
+            filmLikesRepository.removeLike(likedFilmId, 7);
+            status.setRollbackOnly();
+        });
+        assertThat(shard.queryForObject("SELECT created_at FROM film_likes WHERE film_id = ? AND user_id = ?",
+                LocalDateTime.class, likedFilmId, 7)).isEqualTo(likedAt);
+
+        transaction.executeWithoutResult(status -> filmLikesRepository.removeLike(likedFilmId, 7));
+        assertThat(countLikes(shard, likedFilmId)).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testFriendConfirmationInShardsIsUndoneOnRollback() {
+        int requesterId = idOutsidePrimaryShard(1);
+        int userId = idOutsidePrimaryShard(requesterId + 1);
+        JdbcTemplate requesterShard = shardRouter.forKey(requesterId);
+        JdbcTemplate userShard = shardRouter.forKey(userId);
+        requesterShard.update("INSERT INTO friendships (user_id, friend_id, status_id) VALUES (?, ?, 1)",
+                requesterId, userId);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            friendshipRepository.confirmFriend(userId, requesterId);
+            status.setRollbackOnly();
+        });
+        assertThat(friendshipStatus(requesterShard, requesterId, userId)).isEqualTo(1);
+        assertThat(friendshipStatus(userShard, userId, requesterId)).isNull();
+
+        // Обратная связь уже есть: подтверждение запроса откатывается вместе с транзакцией
+        userShard.update("INSERT INTO friendships (user_id, friend_id, status_id) VALUES (?, ?, 2)",
+                userId, requesterId);
+        assertThatThrownBy(() -> transaction.executeWithoutResult(
+                status -> friendshipRepository.confirmFriend(userId, requesterId)))
+                .isInstanceOf(ValidationException.class);
+        assertThat(friendshipStatus(requesterShard, requesterId, userId)).isEqualTo(1);
+
+        userShard.update("DELETE FROM friendships WHERE user_id = ?", userId);
+        transaction.executeWithoutResult(status -> friendshipRepository.confirmFriend(userId, requesterId));
+        assertThat(friendshipStatus(requesterShard, requesterId, userId)).isEqualTo(2);
+        assertThat(friendshipStatus(userShard, userId, requesterId)).isEqualTo(2);
+    }
+
+    @Test
+    public void testCommonFriendsAcrossShards() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(userStorage.addUser(createUser("friend" + i)));
+        }
+        User first = users.get(0);
+        User second = users.get(1);
+        for (User friend : users.subList(2, 6)) {
+            friendshipRepository.addFriend(first.getId(), friend.getId());
+        }
+        friendshipRepository.addFriend(second.getId(), users.get(3).getId());
+        friendshipRepository.addFriend(second.getId(), users.get(5).getId());
+
+        assertThat(friendshipRepository.getFriends(first.getId())).hasSize(4);
+        assertThat(friendshipRepository.getCommonFriends(first.getId(), second.getId()))
+                .extracting(User::getId)
+                .containsExactly(users.get(3).getId(), users.get(5).getId());
+    }
+
+    @Test
+    public void testRebalancerMovesMisplacedRows() {
+        Film film = filmStorage.addFilm(createFilm("Misplaced"));
+        while (shardRouter.shardIndexFor(film.getId()) == 0) {
+            film = filmStorage.addFilm(createFilm("Misplaced"));
+        }
+        User user = userStorage.addUser(createUser("mover"));
+        shardRouter.primary().update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)",
+                film.getId(), user.getId());
+
+        int moved = shardRebalancer.rebalance();
+
+        assertThat(moved).isEqualTo(1);
+        Map<Integer, Integer> counts = filmLikesRepository.getLikeCounts();
+        assertThat(counts).containsEntry(film.getId(), 1);
+        assertThat(shardRouter.forKey(film.getId())
+                .queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ?", Integer.class, film.getId()))
+                .isEqualTo(1);
+        assertThat(shardRebalancer.rebalance()).isZero();
+    }
+
+    @Test
+    public void testUserLikesArePagedAcrossShards() {
+        User user = userStorage.addUser(createUser("pager"));
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int filmId = filmStorage.addFilm(createFilm("Paged " + i)).getId();
+            filmLikesRepository.addLike(filmId, user.getId());
+            // Два последних лайка поставлены одновременно: порядок между ними задает film_id
+            shardRouter.forKey(filmId).update("UPDATE film_likes SET created_at = ? WHERE film_id = ?",
+                    start.plusMinutes(Math.min(i, 3)), filmId);
+            filmIds.add(filmId);
+        }
+
+        List<LikeCursor> firstPage = filmLikesRepository.getLikesByUser(user.getId(), null, 2);
+        List<LikeCursor> secondPage = filmLikesRepository.getLikesByUser(user.getId(), firstPage.get(1), 2);
+        List<LikeCursor> lastPage = filmLikesRepository.getLikesByUser(user.getId(), secondPage.get(1), 2);
+
+        assertThat(filmIds.stream().map(shardRouter::shardIndexFor).distinct().count()).isGreaterThan(1);
+        assertThat(firstPage).extracting(LikeCursor::id).containsExactly(filmIds.get(4), filmIds.get(3));
+        assertThat(secondPage).extracting(LikeCursor::id).containsExactly(filmIds.get(2), filmIds.get(1));
+        assertThat(lastPage).extracting(LikeCursor::id).containsExactly(filmIds.get(0));
+        assertThat(LikeCursor.decode(firstPage.get(1).encode())).isEqualTo(firstPage.get(1));
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+
+        film.setMpa(new MpaRating(1, null));
+        return film;
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private int idOutsidePrimaryShard(int from) {
+        int id = from;
+        while (shardRouter.shardIndexFor(id) == 0) {
+            id++;
+        }
+        return id;
+    }
+
+    private static Integer friendshipStatus(JdbcTemplate shard, int userId, int friendId) {
+        List<Integer> statuses = shard.queryForList(
+                "SELECT status_id FROM friendships WHERE user_id = ? AND friend_id = ?", Integer.class, userId, friendId);
+        return statuses.isEmpty() ? null : statuses.get(0);
+    }
+
+    private static int countLikes(JdbcTemplate shard, int filmId) {
+        return shard.queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.eventlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FilmorateEvent;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testEventsAreReadInOrderAcrossSegments() throws IOException {
+        EventLog eventLog = new EventLog(directory, 3, false);
+        for (int i = 1; i <= 7; i++) {
+            eventLog.append(EventType.LIKE_ADDED, i, 100 + i, null).join();
+        }
+
+        List<FilmorateEvent> events = read(eventLog, 2, 6);
+
+        assertThat(events).extracting(FilmorateEvent::getOffset).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(events).extracting(FilmorateEvent::getFilmId).containsExactly(3, 4, 5, 6);
+        assertThat(events.get(0).getUserId()).isEqualTo(103);
+        assertThat(events.get(0).getFriendId()).isNull();
+        assertThat(segmentCount()).isEqualTo(3);
+        eventLog.close();
+    }
+
+    @Test
+    public void testReadStopsAtLastWrittenEvent() throws IOException {
+        EventLog eventLog = new EventLog(directory, 10, false);
+        eventLog.append(EventType.FRIEND_ADDED, null, 1, 2).join();
+
+        assertThat(read(eventLog, 0, 100))
+                .singleElement()
+                .hasFieldOrPropertyWithValue("type", EventType.FRIEND_ADDED)
+                .hasFieldOrPropertyWithValue("friendId", 2);
+        assertThat(read(eventLog, 5, 100)).isEmpty();
+        eventLog.close();
+    }
+
+    @Test
+    public void testReopenContinuesAfterLastEventAndDropsTornTail() throws IOException {
+        EventLog eventLog = new EventLog(directory, 4, false);
+        for (int i = 1; i <= 5; i++) {
+            eventLog.append(EventType.FILM_ADDED, i, null, null).join();
+        }
+        eventLog.close();
+
+        // Имитация сбоя посреди записи: в конце активного сегмента половина записи
+        Path activeSegment = directory.resolve(String.format("%020d.log", 4));
+        try (FileChannel channel = FileChannel.open(activeSegment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(EventLog.RECORD_SIZE / 2));
+        }
+
+        EventLog reopened = new EventLog(directory, 4, false);
+        assertThat(reopened.getNextOffset()).isEqualTo(5);
+        reopened.append(EventType.FILM_UPDATED, 1, null, null).join();
+
+        assertThat(read(reopened, 0, 100))
+                .extracting(FilmorateEvent::getType)
+                .containsExactly(EventType.FILM_ADDED, EventType.FILM_ADDED, EventType.FILM_ADDED,
+                        EventType.FILM_ADDED, EventType.FILM_ADDED, EventType.FILM_UPDATED);
+        reopened.close();
+    }
+
+    @Test
+    public void testQueuedEventsAreWrittenInBatchesAcrossSegments() throws IOException {
+        EventLog eventLog = new EventLog(directory, 4, true);
+        List<CompletableFuture<Long>> written = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            written.add(eventLog.append(EventType.LIKE_ADDED, i, 1, null));
+        }
+
+        assertThat(written).extracting(CompletableFuture::join).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+        assertThat(read(eventLog, 0, 100)).extracting(FilmorateEvent::getFilmId)
+                .containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertThat(segmentCount()).isEqualTo(3);
+        eventLog.close();
+    }
+
+    // Переход на новый сегмент не удался посреди пачки: следующие пачки пишутся с того же номера
+    @Test
+    public void testWritingResumesAfterFailedSegmentRoll() throws IOException {
+        EventLog eventLog = new EventLog(directory, 2, false);
+        eventLog.append(EventType.FILM_ADDED, 1, null, null).join();
+        Path blocker = Files.createFile(directory.resolve(String.format("%020d.log", 2)));
+
+        List<CompletableFuture<Long>> failed = new ArrayList<>();
+        for (int i = 2; i <= 4; i++) {
+            failed.add(eventLog.append(EventType.FILM_ADDED, i, null, null));
+        }
+        failed.forEach(future -> future.handle((offset, e) -> offset).join());
+        assertThat(failed).anyMatch(CompletableFuture::isCompletedExceptionally);
+        long next = eventLog.getNextOffset();
+        assertThat(next).isLessThanOrEqualTo(2);
+
+        Files.delete(blocker);
+        assertThat(eventLog.append(EventType.FILM_UPDATED, 5, null, null).join()).isEqualTo(next);
+        assertThat(eventLog.append(EventType.FILM_UPDATED, 6, null, null).join()).isEqualTo(next + 1);
+        assertThat(read(eventLog, 0, 100)).extracting(FilmorateEvent::getOffset)
+                .containsExactly(LongStream.range(0, next + 2).boxed().toArray(Long[]::new));
+        eventLog.close();
+    }
+
+    @Test
+    public void testFailedAppendIsCountedAndReportedInHealth() throws IOException {
+        EventLog eventLog = new EventLog(directory, 10, false);
+        assertThat(eventLog.health().getStatus()).isEqualTo(Status.UP);
+        eventLog.close();
+
+        assertThat(eventLog.append(EventType.FILM_ADDED, 1, null, null)).isCompletedExceptionally();
+        assertThat(eventLog.getFailures()).isEqualTo(1);
+        assertThat(eventLog.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+
+    private List<FilmorateEvent> read(EventLog eventLog, long since, long until) {
+        List<FilmorateEvent> events = new ArrayList<>();
+        eventLog.read(since, until, events::add);
+        return events;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.eventlog;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dal.EventOutboxRepository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FilmorateEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Транзакции управляются в тестах: событие должно появиться в журнале только после фиксации изменения
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(EventOutboxRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventOutboxRelayTest {
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private EventOutboxRepository eventOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private EventLog eventLog;
+    private EventOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        eventLog = new EventLog(directory.resolve("events"), 100, false);
+        relay = new EventOutboxRelay(eventOutbox, eventLog, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        eventLog.close();
+    }
+
+    @Test
+    public void testCommittedEventsAreRelayedInOrderAndRemoved() {
+        transaction.executeWithoutResult(status -> {
+            eventOutbox.add(EventType.FILM_ADDED, 1, null, null);
+            eventOutbox.add(EventType.LIKE_ADDED, 1, 7, null);
+        });
+        transaction.executeWithoutResult(status -> eventOutbox.add(EventType.FRIEND_ADDED, null, 7, 8));
+
+        // Пачка ограничена двумя событиями
+        assertThat(relay.relay()).isEqualTo(2);
+        assertThat(relay.relay()).isEqualTo(1);
+        assertThat(relay.relay()).isZero();
+
+        assertThat(read()).extracting(FilmorateEvent::getType)
+                .containsExactly(EventType.FILM_ADDED, EventType.LIKE_ADDED, EventType.FRIEND_ADDED);
+        assertThat(read().get(2).getFriendId()).isEqualTo(8);
+        assertThat(eventOutbox.findOldest(10)).isEmpty();
+    }
+
+    @Test
+    public void testRolledBackChangeLeavesNoEvent() {
+        transaction.executeWithoutResult(status -> {
+            eventOutbox.add(EventType.FILM_UPDATED, 1, null, null);
+            status.setRollbackOnly();
+        });
+
+        assertThat(relay.relay()).isZero();
+        assertThat(read()).isEmpty();
+    }
+
+    @Test
+    public void testEventsStayInOutboxUntilWrittenToLog() throws IOException {
+        transaction.executeWithoutResult(status -> eventOutbox.add(EventType.USER_ADDED, null, 3, null));
+        EventLog closed = new EventLog(directory.resolve("closed"), 100, false);
+        closed.close();
+
+        assertThat(new EventOutboxRelay(eventOutbox, closed, 2).relay()).isZero();
+        assertThat(eventOutbox.findOldest(10)).hasSize(1);
+
+        assertThat(relay.relay()).isEqualTo(1);
+        assertThat(read()).singleElement().hasFieldOrPropertyWithValue("userId", 3);
+    }
+
+    private List<FilmorateEvent> read() {
+        List<FilmorateEvent> events = new ArrayList<>();
+        eventLog.read(0, Long.MAX_VALUE, events::add);
+        return events;
+    }
+}
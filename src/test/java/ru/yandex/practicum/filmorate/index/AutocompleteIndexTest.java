@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import java.time.LocalDate;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AutocompleteIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private LikeCountIndex likeCountIndex;
+    private AutocompleteIndex autocompleteIndex;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        FilmLikesRepository filmLikesRepository = mock(FilmLikesRepository.class);
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of());
+        likeCountIndex = new LikeCountIndex(filmLikesRepository);
+        autocompleteIndex = new AutocompleteIndex(filmStorage, userStorage, likeCountIndex);
+    }
+
+    @Test
+    void shouldSuggestFilmsByPrefixOrderedByLikes() {
+        Film brother = filmStorage.addFilm(createFilm("Брат"));
+        Film brotherTwo = filmStorage.addFilm(createFilm("Брат 2"));
+        filmStorage.addFilm(createFilm("Бумер"));
+        autocompleteIndex.rebuild();
+        likeCountIndex.likeAdded(brotherTwo.getId());
+
+        assertThat(autocompleteIndex.suggestFilms("бра", 10))
+                .extracting(Suggestion::getId)
+                .containsExactly(brotherTwo.getId(), brother.getId());
+    }
+
+    @Test
+    void shouldRankAllPrefixMatchesByLikes() {
+        for (int i = 0; i < 1500; i++) {
+            filmStorage.addFilm(createFilm(String.format("Фильм %04d", i)));
+        }
+        Film last = filmStorage.addFilm(createFilm("Фильм 9999"));
+        Film middle = filmStorage.addFilm(createFilm("Фильм 5000"));
+        autocompleteIndex.rebuild();
+        likeCountIndex.setLikes(last.getId(), 5);
+        likeCountIndex.setLikes(middle.getId(), 3);
+
+        assertThat(autocompleteIndex.suggestFilms("фильм", 3))
+                .extracting(Suggestion::getText)
+                .containsExactly("Фильм 9999", "Фильм 5000", "Фильм 0000");
+    }
+
+    @Test
+    void shouldUpdateFilmTitleInIndex() {
+        Film film = filmStorage.addFilm(createFilm("Рабочее название"));
+        autocompleteIndex.indexFilm(film);
+
+        film.setName("Финальное название");
+        autocompleteIndex.indexFilm(film);
+
+        assertThat(autocompleteIndex.suggestFilms("раб", 10)).isEmpty();
+        assertThat(autocompleteIndex.suggestFilms("фин", 10))
+                .containsExactly(new Suggestion(film.getId(), "Финальное название"));
+    }
+
+    @Test
+    void shouldSuggestUserLoginsAlphabeticallyWithLimit() {
+        userStorage.addUser(createUser("ivan_petrov"));
+        User ivan = userStorage.addUser(createUser("Ivan"));
+        userStorage.addUser(createUser("maria"));
+        autocompleteIndex.rebuild();
+
+        assertThat(autocompleteIndex.suggestUsers("IVA", 1))
+                .containsExactly(new Suggestion(ivan.getId(), "Ivan"));
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@mail.ru");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmSearchIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private LikeCountIndex likeCountIndex;
+    private FilmSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        FilmLikesRepository filmLikesRepository = mock(FilmLikesRepository.class);
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of());
+        likeCountIndex = new LikeCountIndex(filmLikesRepository);
+        likeCountIndex.rebuild();
+        searchIndex = new FilmSearchIndex(filmStorage, likeCountIndex);
+    }
+
+    @Test
+    void shouldFindFilmByCyrillicTitleIgnoringCaseAndYo() {
+        Film film = filmStorage.addFilm(createFilm("Ёлки", "Новогодняя комедия"));
+        searchIndex.rebuild();
+
+        List<Integer> result = searchIndex.search("ЕЛКИ", EnumSet.allOf(SearchField.class), 10);
+
+        assertThat(result).containsExactly(film.getId());
+    }
+
+    @Test
+    void shouldRankTitleMatchesAboveDescriptionMatches() {
+        Film inDescription = filmStorage.addFilm(createFilm("Один дома", "Рождественская комедия"));
+        Film inTitle = filmStorage.addFilm(createFilm("Комедия ошибок", "Экранизация"));
+        searchIndex.rebuild();
+
+        List<Integer> result = searchIndex.search("комедия", EnumSet.allOf(SearchField.class), 10);
+
+        assertThat(result).containsExactly(inTitle.getId(), inDescription.getId());
+    }
+
+    @Test
+    void shouldRankEqualMatchesByLikes() {
+        Film first = filmStorage.addFilm(createFilm("Матрица", "Фантастика"));
+        Film second = filmStorage.addFilm(createFilm("Матрица: Перезагрузка", "Фантастика"));
+        searchIndex.rebuild();
+        likeCountIndex.likeAdded(second.getId());
+
+        List<Integer> result = searchIndex.search("фантастика", EnumSet.of(SearchField.DESCRIPTION), 10);
+
+        assertThat(result).containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    void shouldMatchLastTokenByPrefixAndRequireAllTokens() {
+        Film film = filmStorage.addFilm(createFilm("Крестный отец", "Драма о мафии"));
+        filmStorage.addFilm(createFilm("Отец невесты", "Комедия"));
+        searchIndex.rebuild();
+
+        assertThat(searchIndex.search("отец крест", EnumSet.of(SearchField.TITLE), 10))
+                .containsExactly(film.getId());
+        assertThat(searchIndex.search("отец мафия", EnumSet.of(SearchField.TITLE), 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReindexUpdatedFilm() {
+        Film film = filmStorage.addFilm(createFilm("Старое название", "Описание"));
+        searchIndex.index(film);
+
+        film.setName("Новое название");
+        searchIndex.index(film);
+
+        assertThat(searchIndex.search("старое", EnumSet.of(SearchField.TITLE), 10)).isEmpty();
+        assertThat(searchIndex.search("новое", EnumSet.of(SearchField.TITLE), 10)).containsExactly(film.getId());
+    }
+
+    private Film createFilm(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+}
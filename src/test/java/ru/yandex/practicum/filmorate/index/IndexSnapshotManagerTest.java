@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.dal.EntityCountRepository;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.LikeChecksum;
+import ru.yandex.practicum.filmorate.eventlog.EventLog;
+import ru.yandex.practicum.filmorate.eventlog.EventOutboxRelay;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexSnapshotManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private FilmLikesRepository filmLikesRepository;
+    private EntityCountRepository entityCountRepository;
+    private EventLog eventLog;
+    private EventOutboxRelay eventOutboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = spy(new InMemoryFilmStorage());
+        userStorage = new InMemoryUserStorage();
+        filmLikesRepository = mock(FilmLikesRepository.class);
+        entityCountRepository = mock(EntityCountRepository.class);
+        eventLog = new EventLog(directory.resolve("events"), 100, false);
+        eventOutboxRelay = mock(EventOutboxRelay.class);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        eventLog.close();
+    }
+
+    @Test
+    void shouldRestoreFromSnapshotAndCatchUpFromEventLog() {
+        Film matrix = filmStorage.addFilm(createFilm("Матрица"));
+        userStorage.addUser(createUser("neo"));
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of(matrix.getId(), 2));
+        Node first = startNode();
+        first.manager.writeSnapshot();
+
+        // После снимка: новый фильм и лайк, о которых знает только журнал событий
+        Film brother = filmStorage.addFilm(createFilm("Брат"));
+        eventLog.append(EventType.FILM_ADDED, brother.getId(), null, null).join();
+        eventLog.append(EventType.LIKE_ADDED, matrix.getId(), 1, null).join();
+        when(filmLikesRepository.getLikeCounts(anyCollection())).thenReturn(Map.of(matrix.getId(), 3));
+        matchDatabase(Map.of(matrix.getId(), 3));
+        clearInvocations(filmStorage, filmLikesRepository);
+
+        Node second = startNode();
+
+        verify(eventOutboxRelay, atLeastOnce()).relay();
+        verify(filmStorage, never()).getAllFilms();
+        verify(filmLikesRepository, never()).getLikeCounts();
+        assertThat(second.likeCountIndex.getLikes(matrix.getId())).isEqualTo(3);
+        assertThat(second.searchIndex.search("брат", EnumSet.of(SearchField.TITLE), 10))
+                .containsExactly(brother.getId());
+        assertThat(second.autocompleteIndex.suggestUsers("ne", 10)).extracting(Suggestion::getText)
+                .containsExactly("neo");
+    }
+
+    // Изменение, событие о котором не попало в журнал, находится по версии фильма
+    @Test
+    void shouldReindexFilmsChangedAfterSnapshotWithoutEvents() {
+        Film matrix = filmStorage.addFilm(createFilm("Матрица"));
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of());
+        startNode().manager.writeSnapshot();
+
+        Film renamed = createFilm("Перезагрузка");
+        renamed.setId(matrix.getId());
+        filmStorage.updateFilm(renamed);
+        matchDatabase(Map.of());
+        clearInvocations(filmStorage);
+
+        Node node = startNode();
+
+        verify(filmStorage, never()).getAllFilms();
+        assertThat(node.searchIndex.search("перезагр", Set.of(SearchField.TITLE), 10))
+                .containsExactly(matrix.getId());
+        assertThat(node.searchIndex.search("матр", Set.of(SearchField.TITLE), 10)).isEmpty();
+    }
+
+    // Общее число лайков то же, но один лайк перешел к другому фильму
+    @Test
+    void shouldRebuildWhenLikesMovedBetweenFilms() {
+        Film matrix = filmStorage.addFilm(createFilm("Матрица"));
+        Film brother = filmStorage.addFilm(createFilm("Брат"));
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of(matrix.getId(), 2));
+        startNode().manager.writeSnapshot();
+        matchDatabase(Map.of(matrix.getId(), 1, brother.getId(), 1));
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of(matrix.getId(), 1, brother.getId(), 1));
+        clearInvocations(filmStorage);
+
+        Node node = startNode();
+
+        verify(filmStorage, atLeastOnce()).getAllFilms();
+        assertThat(node.likeCountIndex.getLikes(brother.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRebuildWhenSnapshotDoesNotMatchDatabase() {
+        filmStorage.addFilm(createFilm("Матрица"));
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of());
+        startNode().manager.writeSnapshot();
+        matchDatabase(Map.of());
+        when(entityCountRepository.countUsers()).thenReturn(5L);
+        clearInvocations(filmStorage);
+
+        startNode();
+
+        verify(filmStorage, atLeastOnce()).getAllFilms();
+    }
+
+    @Test
+    void shouldIgnoreCorruptedSnapshot() throws IOException {
+        filmStorage.addFilm(createFilm("Матрица"));
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of());
+        startNode().manager.writeSnapshot();
+        Path snapshot = directory.resolve("index.snapshot");
+        Files.write(snapshot, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertThat(IndexSnapshot.read(snapshot)).isEmpty();
+        clearInvocations(filmStorage);
+        Node node = startNode();
+
+        verify(filmStorage, atLeastOnce()).getAllFilms();
+        assertThat(node.searchIndex.search("матр", Set.of(SearchField.TITLE), 10)).hasSize(1);
+    }
+
+    // База совпадает с хранилищем в памяти: версии фильмов и пользователи оттуда, лайки - переданные
+    private void matchDatabase(Map<Integer, Integer> likeCounts) {
+        Map<Integer, Integer> versions = new HashMap<>();
+        filmStorage.getAllFilms().forEach(film -> versions.put(film.getId(), film.getVersion()));
+        when(entityCountRepository.getFilmVersions()).thenReturn(versions);
+        when(entityCountRepository.countUsers()).thenReturn((long) userStorage.getAllUsers().size());
+        when(filmLikesRepository.getLikeChecksum()).thenReturn(LikeChecksum.of(likeCounts));
+    }
+
+    private Node startNode() {
+        LikeCountIndex likeCountIndex = new LikeCountIndex(filmLikesRepository);
+        FilmSearchIndex searchIndex = new FilmSearchIndex(filmStorage, likeCountIndex);
+        AutocompleteIndex autocompleteIndex = new AutocompleteIndex(filmStorage, userStorage, likeCountIndex);
+        IndexSnapshotManager manager = new IndexSnapshotManager(likeCountIndex, searchIndex, autocompleteIndex,
+                eventLog, eventOutboxRelay, filmStorage, userStorage, filmLikesRepository, entityCountRepository,
+                directory.resolve("index.snapshot"), true);
+        manager.warmUp();
+        return new Node(likeCountIndex, searchIndex, autocompleteIndex, manager);
+    }
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private record Node(LikeCountIndex likeCountIndex, FilmSearchIndex searchIndex,
+                        AutocompleteIndex autocompleteIndex, IndexSnapshotManager manager) {
+    }
+}
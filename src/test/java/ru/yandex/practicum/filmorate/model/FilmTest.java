@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -64,6 +65,17 @@ class FilmTest {
         assertTrue(violations.stream().anyMatch(v -> v.getMessage().contains("Продолжительность фильма должна быть положительным числом")));
     }
 
+    @Test
+    void shouldReadImmutableMpaAndGenresFromRequestBody() throws Exception {
+        String json = "{\"name\":\"Valid Film\",\"releaseDate\":\"2000-01-01\",\"duration\":120," +
+                "\"mpa\":{\"id\":1},\"genres\":[{\"id\":2},{\"id\":3,\"name\":\"Мультфильм\"}]}";
+
+        Film film = new ObjectMapper().findAndRegisterModules().readValue(json, Film.class);
+
+        assertEquals(new MpaRating(1, null), film.getMpa());
+        assertEquals(Set.of(new Genre(2, null), new Genre(3, "Мультфильм")), film.getGenres());
+    }
+
     private Film createValidFilm() {
         Film film = new Film();
         film.setName("Valid Film");
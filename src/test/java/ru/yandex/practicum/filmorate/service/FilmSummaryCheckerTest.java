@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.ShardingConfig;
+import ru.yandex.practicum.filmorate.config.SqlDialectConfig;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.FilmSummary;
+import ru.yandex.practicum.filmorate.dal.FilmSummaryRepository;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.dal.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({SqlDialectConfig.class, ShardingConfig.class, FilmDbStorage.class, UserDbStorage.class,
+        FilmLikesRepository.class, GenreRepository.class, ReferenceDataCache.class, FilmSummaryRepository.class,
+        FilmSummaryChecker.class})
+class FilmSummaryCheckerTest {
+
+    private final FilmSummaryChecker checker;
+    private final FilmSummaryRepository filmSummaryRepository;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final GenreRepository genreRepository;
+    private final FilmLikesRepository filmLikesRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testMissingAndStaleRowsAreRepaired() {
+        Film film = createFilmWithLike();
+
+        // Фильм записан мимо сводки: проверка добавляет строку
+        assertThat(checker.check()).isEqualTo(1);
+        List<Film> films = filmSummaryRepository.getAllFilms();
+        assertThat(films).hasSize(1);
+        assertThat(films.get(0).getMpa().getName()).isEqualTo("PG");
+        assertThat(films.get(0).getGenres()).extracting(Genre::getId).containsExactly(1, 3);
+        assertThat(filmSummaryRepository.getSummaries().get(film.getId()).likesCount()).isEqualTo(1);
+
+        jdbcTemplate.update("UPDATE film_summary SET likes_count = 7 WHERE film_id = ?", film.getId());
+        assertThat(checker.check()).isEqualTo(1);
+        assertThat(filmSummaryRepository.getSummaries().get(film.getId()).likesCount()).isEqualTo(1);
+
+        assertThat(checker.check()).isZero();
+    }
+
+    @Test
+    public void testStartupCheckOnlyFillsEmptySummary() {
+        Film film = createFilmWithLike();
+        checker.checkOnStartup();
+        assertThat(filmSummaryRepository.getSummaries()).containsOnlyKeys(film.getId());
+
+        // Заполненную сводку при старте не сверяют: расхождение исправит плановая проверка
+        jdbcTemplate.update("UPDATE film_summary SET likes_count = 7 WHERE film_id = ?", film.getId());
+        checker.checkOnStartup();
+        assertThat(filmSummaryRepository.getSummaries().get(film.getId()).likesCount()).isEqualTo(7);
+    }
+
+    @Test
+    public void testOnlySelectedFieldsAreReadFromSummary() {
+        Film film = createFilmWithLike();
+        checker.check();
+
+        List<Film> films = filmSummaryRepository.getAllFilms(FilmField.parse("name,mpa"));
+        assertThat(films).hasSize(1);
+        assertThat(films.get(0).getId()).isEqualTo(film.getId());
+        assertThat(films.get(0).getName()).isEqualTo(film.getName());
+        assertThat(films.get(0).getMpa().getName()).isEqualTo("PG");
+        assertThat(films.get(0).getDescription()).isNull();
+        assertThat(films.get(0).getReleaseDate()).isNull();
+        assertThat(films.get(0).getGenres()).isEmpty();
+    }
+
+    @Test
+    public void testRowChangedAfterReadIsNotOverwritten() {
+        Film film = createFilmWithLike();
+        checker.check();
+        FilmSummary stored = filmSummaryRepository.getSummaries().get(film.getId());
+
+        // Между чтением сводки и исправлением пришел лайк
+        filmSummaryRepository.likesChanged(film.getId(), 1);
+
+        assertThat(filmSummaryRepository.replace(stored, filmSummaryRepository.summaryOf(film, 1))).isFalse();
+        assertThat(filmSummaryRepository.getSummaries().get(film.getId()).likesCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testPopularFilmsAreFilteredByGenreOrMpa() {
+        Film liked = createFilmWithLike();
+        checker.check();
+        Film other = createFilm(1, Set.of(new Genre(1, null)));
+        filmSummaryRepository.filmAdded(other);
+
+        assertThat(filmSummaryRepository.getPopularFilms(10, 1, null))
+                .extracting(Film::getId).containsExactly(liked.getId(), other.getId());
+        assertThat(filmSummaryRepository.getPopularFilms(1, 1, null))
+                .extracting(Film::getId).containsExactly(liked.getId());
+        assertThat(filmSummaryRepository.getPopularFilms(10, 3, null))
+                .extracting(Film::getId).containsExactly(liked.getId());
+        assertThat(filmSummaryRepository.getPopularFilms(10, null, 1))
+                .extracting(Film::getId).containsExactly(other.getId());
+        assertThat(filmSummaryRepository.getPopularFilms(10, null, 4)).isEmpty();
+    }
+
+    private Film createFilmWithLike() {
+        Film created = createFilm(2, Set.of(new Genre(3, null), new Genre(1, null)));
+
+        User user = new User();
+        user.setEmail("summary@mail.ru");
+        user.setLogin("summary");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        filmLikesRepository.addLike(created.getId(), userStorage.addUser(user).getId());
+        return created;
+    }
+
+    private Film createFilm(int mpaId, Set<Genre> genres) {
+        Film film = new Film();
+        film.setName("Summary");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(mpaId, null));
+        film.setGenres(genres);
+        Film created = filmStorage.addFilm(film);
+        genreRepository.insertFilmGenres(created.getId(), created.getGenres());
+        return created;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmLikesRepository;
+import ru.yandex.practicum.filmorate.dal.GenreRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularFilmsSnapshotTest {
+    private static final int SIZE = 2;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ResourceVersions resourceVersions = new ResourceVersions();
+    private FilmLikesRepository filmLikesRepository;
+    private PopularFilmsSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        filmLikesRepository = mock(FilmLikesRepository.class);
+        snapshot = new PopularFilmsSnapshot(filmStorage, mock(GenreRepository.class), filmLikesRepository,
+                resourceVersions, true, SIZE, now::get);
+
+        filmStorage.addFilm(film("Первый", 1, 1));
+        filmStorage.addFilm(film("Второй", 1, 2));
+        filmStorage.addFilm(film("Третий", 2, 1));
+        filmStorage.addFilm(film("Четвертый", 2, 1));
+        // У первого и четвертого фильмов поровну лайков: выше тот, у кого меньше id
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of(1, 3, 2, 5, 4, 3));
+    }
+
+    @Test
+    public void testSnapshotIsEmptyUntilRefreshed() {
+        assertThat(snapshot.find(1, null, null)).isEmpty();
+        assertThat(snapshot.covers(1)).isFalse();
+        assertThat(snapshot.getAgeSeconds()).isNaN();
+    }
+
+    @Test
+    public void testFilmsAreRankedOverallAndPerGenreAndMpa() {
+        snapshot.refresh();
+
+        assertThat(snapshot.find(SIZE, null, null).orElseThrow()).extracting(Film::getId).containsExactly(2, 1);
+        assertThat(snapshot.find(1, null, null).orElseThrow()).extracting(Film::getId).containsExactly(2);
+        assertThat(snapshot.find(SIZE, 1, null).orElseThrow()).extracting(Film::getId).containsExactly(1, 4);
+        assertThat(snapshot.find(SIZE, null, 2).orElseThrow()).extracting(Film::getId).containsExactly(4, 3);
+        assertThat(snapshot.find(SIZE, 6, null).orElseThrow()).isEmpty();
+        // В снимке хранится только SIZE фильмов, больший список строится запросом к базе
+        assertThat(snapshot.find(SIZE + 1, null, null)).isEmpty();
+        assertThat(snapshot.find(SIZE + 1, 1, null)).isEmpty();
+        assertThat(snapshot.covers(SIZE)).isTrue();
+        assertThat(snapshot.covers(SIZE + 1)).isFalse();
+    }
+
+    @Test
+    public void testRefreshChangesVersionAndResetsAge() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        snapshot.bindTo(registry);
+        ResourceVersions.Version before = resourceVersions.getPopularSnapshotVersion();
+        ResourceVersions.Version live = resourceVersions.getPopularFilmsVersion();
+
+        snapshot.refresh();
+        now.addAndGet(30_000);
+
+        assertThat(resourceVersions.getPopularSnapshotVersion()).isNotEqualTo(before);
+        assertThat(resourceVersions.getPopularFilmsVersion()).isEqualTo(live);
+        assertThat(registry.get("filmorate.popular.snapshot.age").gauge().value()).isEqualTo(30.0);
+
+        when(filmLikesRepository.getLikeCounts()).thenReturn(Map.of(3, 10));
+        snapshot.refresh();
+        assertThat(registry.get("filmorate.popular.snapshot.age").gauge().value()).isZero();
+        assertThat(snapshot.find(1, null, null).orElseThrow()).extracting(Film::getId).containsExactly(3);
+    }
+
+    // Лайки меняют версию списка из базы, но не ETag списка из снимка
+    @Test
+    public void testLikesDoNotChangeSnapshotVersion() {
+        snapshot.refresh();
+        ResourceVersions.Version version = resourceVersions.getPopularSnapshotVersion();
+
+        resourceVersions.likesChanged();
+
+        assertThat(resourceVersions.getPopularSnapshotVersion()).isEqualTo(version);
+    }
+
+    private static Film film(String name, int mpaId, int genreId) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(mpaId, null));
+        film.setGenres(Set.of(new Genre(genreId, null)));
+        return film;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final SingleFlight singleFlight = new SingleFlight("film");
+
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("film:1", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "film";
+                })));
+            }
+            // Первый вызов держит загрузку, пока остальные не присоединятся к нему
+            while (singleFlight.getCoalesced() < CALLERS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("film");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(singleFlight.getExecutions()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailureIsDeliveredToWaitingCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> singleFlight.execute("film:2", () -> {
+                await(release);
+                throw new NotFoundException("Фильм с id 2 не найден");
+            }));
+            while (singleFlight.getExecutions() == 0) {
+                Thread.sleep(5);
+            }
+            Future<Object> follower = executor.submit(() -> singleFlight.execute("film:2", () -> "не выполняется"));
+            while (singleFlight.getCoalesced() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(NotFoundException.class);
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(NotFoundException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCoalescedCallersDoNotSeeEachOthersChanges() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Film>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                int caller = i;
+                results.add(executor.submit(() -> {
+                    Film film = singleFlight.execute("film:3", () -> {
+                        await(release);
+                        Film loaded = new Film();
+                        loaded.setId(3);
+                        loaded.setName("Брат");
+                        loaded.setGenres(new LinkedHashSet<>(List.of(new Genre(1, "Комедия"))));
+                        return loaded;
+                    }, Film::copy);
+                    // Каждый вызов меняет полученный фильм так, как это делает getFilmWithLikes
+                    film.setName("Брат " + caller);
+                    film.setLikes(Set.of(caller));
+                    film.getGenres().add(new Genre(100 + caller, "Жанр " + caller));
+                    return film;
+                }));
+            }
+            while (singleFlight.getCoalesced() < CALLERS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            Set<Film> distinct = new HashSet<>();
+            for (int i = 0; i < CALLERS; i++) {
+                Film film = results.get(i).get(5, TimeUnit.SECONDS);
+                assertThat(film.getName()).isEqualTo("Брат " + i);
+                assertThat(film.getLikes()).containsExactly(i);
+                assertThat(film.getGenres()).extracting(Genre::getId).containsExactly(1, 100 + i);
+                distinct.add(film);
+            }
+            assertThat(distinct).hasSize(CALLERS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(singleFlight.getExecutions()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSequentialCallsAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        singleFlight.bindTo(registry);
+
+        singleFlight.execute("popular:10", loads::incrementAndGet);
+        singleFlight.execute("popular:10", loads::incrementAndGet);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(registry.get("filmorate.singleflight.executions").tag("operation", "film")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("filmorate.singleflight.coalesced").functionCounter().count()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
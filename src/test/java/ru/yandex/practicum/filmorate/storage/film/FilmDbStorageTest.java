@@ -6,16 +6,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.dal.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import java.time.LocalDate;
 import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class})
+@Import({FilmDbStorage.class, ReferenceDataCache.class})
 class FilmDbStorageTest {
 
     private final FilmDbStorage filmStorage;
@@ -28,9 +32,7 @@ class FilmDbStorageTest {
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
 
-        MpaRating mpa = new MpaRating();
-        mpa.setId(1);
-        film.setMpa(mpa);
+        film.setMpa(new MpaRating(1, null));
 
         Film createdFilm = filmStorage.addFilm(film);
         Film foundFilm = filmStorage.getFilmById(createdFilm.getId());
@@ -49,9 +51,7 @@ class FilmDbStorageTest {
         film1.setReleaseDate(LocalDate.of(2000, 1, 1));
         film1.setDuration(120);
 
-        MpaRating mpa1 = new MpaRating();
-        mpa1.setId(1);
-        film1.setMpa(mpa1);
+        film1.setMpa(new MpaRating(1, null));
 
         Film film2 = new Film();
         film2.setName("Test Film 2");
@@ -59,9 +59,7 @@ class FilmDbStorageTest {
         film2.setReleaseDate(LocalDate.of(2005, 1, 1));
         film2.setDuration(150);
 
-        MpaRating mpa2 = new MpaRating();
-        mpa2.setId(2);
-        film2.setMpa(mpa2);
+        film2.setMpa(new MpaRating(2, null));
 
         filmStorage.addFilm(film1);
         filmStorage.addFilm(film2);
@@ -71,6 +69,30 @@ class FilmDbStorageTest {
         assertThat(films).hasSize(2);
     }
 
+    @Test
+    public void testGetFilmsByIdsLoadsOnlySelectedFields() {
+        Film film = new Film();
+        film.setName("Test Film");
+        film.setDescription("Test Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+
+        film.setMpa(new MpaRating(1, null));
+        Film createdFilm = filmStorage.addFilm(film);
+
+        List<Film> films = filmStorage.getFilmsByIds(List.of(createdFilm.getId()),
+                FilmField.parse("name,mpa"));
+
+        assertThat(films).hasSize(1);
+        Film projected = films.get(0);
+        assertThat(projected.getId()).isEqualTo(createdFilm.getId());
+        assertThat(projected.getName()).isEqualTo("Test Film");
+        assertThat(projected.getMpa().getId()).isEqualTo(1);
+        assertThat(projected.getDescription()).isNull();
+        assertThat(projected.getReleaseDate()).isNull();
+        assertThat(projected.getVersion()).isNull();
+    }
+
     @Test
     public void testUpdateFilm() {
         Film film = new Film();
@@ -79,9 +101,7 @@ class FilmDbStorageTest {
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
 
-        MpaRating mpa = new MpaRating();
-        mpa.setId(1);
-        film.setMpa(mpa);
+        film.setMpa(new MpaRating(1, null));
 
         Film createdFilm = filmStorage.addFilm(film);
         createdFilm.setName("Updated Film");
@@ -103,9 +123,7 @@ class FilmDbStorageTest {
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
 
-        MpaRating mpa = new MpaRating();
-        mpa.setId(1);
-        film.setMpa(mpa);
+        film.setMpa(new MpaRating(1, null));
 
         Film createdFilm = filmStorage.addFilm(film);
 
@@ -115,4 +133,46 @@ class FilmDbStorageTest {
         assertThat(createdFilm.getDescription()).isEqualTo("Test Description");
         assertThat(createdFilm.getDuration()).isEqualTo(120);
     }
+
+    @Test
+    public void testUpdateFilmIncrementsVersion() {
+        Film film = new Film();
+        film.setName("Test Film");
+        film.setDescription("Test Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+
+        film.setMpa(new MpaRating(1, null));
+
+        Film createdFilm = filmStorage.addFilm(film);
+        assertThat(createdFilm.getVersion()).isZero();
+
+        createdFilm.setName("Updated Film");
+        filmStorage.updateFilm(createdFilm);
+
+        assertThat(createdFilm.getVersion()).isEqualTo(1);
+        assertThat(filmStorage.getFilmById(createdFilm.getId()).getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUpdateFilmWithStaleVersionIsRejected() {
+        Film film = new Film();
+        film.setName("Test Film");
+        film.setDescription("Test Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+
+        film.setMpa(new MpaRating(1, null));
+
+        Film createdFilm = filmStorage.addFilm(film);
+        createdFilm.setName("First Editor");
+        filmStorage.updateFilm(createdFilm);
+
+        createdFilm.setName("Second Editor");
+        createdFilm.setVersion(0);
+
+        assertThatThrownBy(() -> filmStorage.updateFilm(createdFilm))
+                .isInstanceOf(ConflictException.class);
+        assertThat(filmStorage.getFilmById(createdFilm.getId()).getName()).isEqualTo("First Editor");
+    }
 }
\ No newline at end of file
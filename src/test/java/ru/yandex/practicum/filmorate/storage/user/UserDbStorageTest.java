@@ -96,4 +96,27 @@ class UserDbStorageTest {
         assertThat(createdUser.getEmail()).isEqualTo("test@mail.ru");
         assertThat(createdUser.getLogin()).isEqualTo("testLogin");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetUsersByIds() {
+        User user1 = new User();
+        user1.setEmail("batch1@mail.ru");
+        user1.setLogin("batchLogin1");
+        user1.setName("Batch Name 1");
+        user1.setBirthday(LocalDate.of(1990, 1, 1));
+
+        User user2 = new User();
+        user2.setEmail("batch2@mail.ru");
+        user2.setLogin("batchLogin2");
+        user2.setName("Batch Name 2");
+        user2.setBirthday(LocalDate.of(1995, 1, 1));
+
+        int id1 = userStorage.addUser(user1).getId();
+        userStorage.addUser(user2);
+
+        List<User> users = userStorage.getUsersByIds(List.of(id1, 999_999));
+
+        assertThat(users).extracting(User::getLogin).containsExactly("batchLogin1");
+        assertThat(userStorage.getUsersByIds(List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.LikeCountIndex;
+import ru.yandex.practicum.filmorate.model.LikeCountUpdate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LikeStreamBroadcasterTest {
+    private static final int QUEUE_CAPACITY = 4;
+
+    private LikeCountIndex likeCountIndex;
+    private LikeStreamBroadcaster broadcaster;
+
+    @BeforeEach
+    public void setUp() {
+        likeCountIndex = mock(LikeCountIndex.class);
+        // Плановые отправки отключены большим интервалом, flush вызывается из теста, события отправляются
+        // в потоке теста
+        broadcaster = new LikeStreamBroadcaster(likeCountIndex, 3_600_000, 3_600_000, 60_000, QUEUE_CAPACITY,
+                Runnable::run);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void testChangesAreCoalescedPerClient() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(List.of(1, 2), emitter);
+        broadcaster.flush();
+        emitter.updates.clear();
+
+        when(likeCountIndex.getLikes(1)).thenReturn(3);
+        broadcaster.likesChanged(1, 1);
+        broadcaster.likesChanged(1, 1);
+        broadcaster.likesChanged(1, 1);
+        broadcaster.likesChanged(3, 1);
+        broadcaster.flush();
+
+        assertThat(emitter.events).isEqualTo(2);
+        assertThat(emitter.updates).containsExactly(new LikeCountUpdate(1, 3, 3));
+    }
+
+    @Test
+    public void testFirstEventContainsCurrentCounts() {
+        when(likeCountIndex.getLikes(1)).thenReturn(5);
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        broadcaster.subscribe(List.of(1, 2), emitter);
+        broadcaster.flush();
+
+        assertThat(emitter.updates).containsExactlyInAnyOrder(
+                new LikeCountUpdate(1, 5, 0), new LikeCountUpdate(2, 0, 0));
+    }
+
+    @Test
+    public void testFailedClientIsUnsubscribed() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failing = true;
+        broadcaster.subscribe(List.of(1), emitter);
+
+        broadcaster.flush();
+        broadcaster.likesChanged(1, 1);
+
+        assertThat(broadcaster.getSubscriptionCount()).isZero();
+    }
+
+    @Test
+    public void testSlowClientDoesNotDelayOthersAndIsDisconnectedOnOverflow() throws Exception {
+        ExecutorService sender = Executors.newFixedThreadPool(2);
+        LikeStreamBroadcaster concurrent = new LikeStreamBroadcaster(likeCountIndex, 3_600_000, 3_600_000, 60_000,
+                QUEUE_CAPACITY, sender);
+        try {
+            BlockingEmitter slow = new BlockingEmitter();
+            RecordingEmitter fast = new RecordingEmitter();
+            concurrent.subscribe(List.of(1), slow);
+            concurrent.subscribe(List.of(1), fast);
+            concurrent.flush();
+            assertThat(slow.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Медленный клиент завис в отправке первого события, его следующие события копятся в очереди,
+            // а быстрый клиент получает каждое событие
+            for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+                concurrent.likesChanged(1, 1);
+                concurrent.flush();
+                awaitEvents(fast, i + 2);
+            }
+            assertThat(concurrent.getSubscriptionCount()).isEqualTo(1);
+
+            slow.release.countDown();
+            assertThat(slow.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            concurrent.shutdown();
+        }
+    }
+
+    @Test
+    public void testTooManyFilmsAreRejected() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            ids.add(i);
+        }
+        assertThatThrownBy(() -> broadcaster.subscribe(ids)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> broadcaster.subscribe(Set.of())).isInstanceOf(ValidationException.class);
+    }
+
+    private static void awaitEvents(RecordingEmitter emitter, int events) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emitter.getEvents() < events && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(emitter.getEvents()).isEqualTo(events);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<LikeCountUpdate> updates = new ArrayList<>();
+        private volatile int events;
+        private boolean failing;
+
+        private int getEvents() {
+            return events;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events++;
+            builder.build().stream()
+                    .filter(part -> part.getData() instanceof List)
+                    .forEach(part -> updates.addAll((List<LikeCountUpdate>) part.getData()));
+        }
+    }
+
+    // Клиент, который перестал читать: отправка ждет release
+    private static class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadCacheTest {
+
+    private final PayloadCache payloadCache = new PayloadCache(new ObjectMapper(),
+            new MappingJackson2CborHttpMessageConverter(), new MappingJackson2SmileHttpMessageConverter(), 2);
+    private final ResourceVersions.Version version = new ResourceVersions().getPopularFilmsVersion();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        respond("films:popular:1");
+        respond("films:popular:2");
+        respond("films:popular:1");
+        respond("films:popular:3");
+        assertThat(payloadCache.size()).isEqualTo(2);
+        assertThat(loads.get()).isEqualTo(3);
+
+        // Вытеснена запись, к которой дольше всего не обращались
+        respond("films:popular:1");
+        assertThat(loads.get()).isEqualTo(3);
+        respond("films:popular:2");
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void testGzipIsChosenByQualityValues() {
+        assertThat(PayloadCache.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(PayloadCache.acceptsGzip("deflate;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(PayloadCache.acceptsGzip("*")).isTrue();
+        assertThat(PayloadCache.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(PayloadCache.acceptsGzip("gzip; q=0.0, *;q=1")).isFalse();
+        assertThat(PayloadCache.acceptsGzip("identity, *;q=0")).isFalse();
+        assertThat(PayloadCache.acceptsGzip("deflate")).isFalse();
+        assertThat(PayloadCache.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    public void testCompressedBodyIsNotSentWhenGzipIsRefused() {
+        List<String> body = Collections.nCopies(100, "Описание фильма для проверки сжатия");
+        MockHttpServletRequest refused = new MockHttpServletRequest();
+        refused.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+        MockHttpServletRequest accepted = new MockHttpServletRequest();
+        accepted.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0.8");
+
+        ResponseEntity<byte[]> plain = payloadCache.respond("films:popular:100", version, () -> body,
+                new ServletWebRequest(refused));
+        ResponseEntity<byte[]> gzip = payloadCache.respond("films:popular:100", version, () -> body,
+                new ServletWebRequest(accepted));
+
+        assertThat(plain.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzip.getBody().length).isLessThan(plain.getBody().length);
+    }
+
+    @Test
+    public void testConditionalCheckSeparatesEncodingsAndSetsVary() {
+        MockHttpServletResponse identity = check(null, null);
+        MockHttpServletResponse gzip = check("gzip", null);
+        assertThat(identity.getHeader(HttpHeaders.ETAG)).isNotEqualTo(gzip.getHeader(HttpHeaders.ETAG));
+
+        // ETag несжатого ответа не подходит для клиента, принимающего gzip, и наоборот
+        assertThat(check("gzip", identity.getHeader(HttpHeaders.ETAG)).getStatus()).isEqualTo(200);
+        MockHttpServletResponse notModified = check("gzip", gzip.getHeader(HttpHeaders.ETAG));
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getHeader(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private MockHttpServletResponse check(String acceptEncoding, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/popular");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        payloadCache.checkNotModified(version, new ServletWebRequest(request, response));
+        return response;
+    }
+
+    private void respond(String key) {
+        payloadCache.respond(key, version, () -> {
+            loads.incrementAndGet();
+            return List.of(key);
+        }, new ServletWebRequest(new MockHttpServletRequest()));
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.TestStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /films отдается конвертерами сообщений, GET /films/popular - через PayloadCache; оба должны выбирать
+// формат по Accept и учитывать fields в CBOR и Smile так же, как в JSON
+@AutoConfigureMockMvc
+@DirtiesContext
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:wire-format-negotiation")
+class WireFormatNegotiationTest {
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final TypeReference<List<Map<String, Object>>> FILMS = new TypeReference<>() {
+    };
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        TestStorage.register(registry, storage);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private PayloadCache payloadCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    // Контекст общий для всех тестов класса, фильмы добавляются один раз
+    @BeforeEach
+    void setUp() {
+        if (!filmService.getAllFilms().isEmpty()) {
+            return;
+        }
+        for (int i = 1; i <= 3; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, i));
+            film.setDuration(90 + i);
+            film.setMpa(new MpaRating(1, null));
+            film.setGenres(Set.of(new Genre(i, null)));
+            filmService.addFilm(film);
+        }
+    }
+
+    @Test
+    void shouldWriteAllFilmsInRequestedFormat() throws Exception {
+        List<Map<String, Object>> json = read("/films", MediaType.APPLICATION_JSON, objectMapper);
+        assertThat(json).hasSize(3);
+
+        assertThat(read("/films", MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper())).isEqualTo(json);
+        assertThat(read("/films", SMILE, smileConverter.getObjectMapper())).isEqualTo(json);
+    }
+
+    @Test
+    void shouldApplyFieldsToAllFilmsInBinaryFormats() throws Exception {
+        assertThat(read("/films?fields=name", MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper()))
+                .hasSize(3)
+                .allSatisfy(film -> assertThat(film).containsOnlyKeys("id", "name"));
+        assertThat(read("/films?fields=name", SMILE, smileConverter.getObjectMapper()))
+                .hasSize(3)
+                .allSatisfy(film -> assertThat(film).containsOnlyKeys("id", "name"));
+    }
+
+    @Test
+    void shouldCachePopularFilmsPerFormat() throws Exception {
+        int entries = payloadCache.size();
+
+        List<Map<String, Object>> json = read("/films/popular?count=7", MediaType.APPLICATION_JSON, objectMapper);
+        List<Map<String, Object>> cbor = read("/films/popular?count=7", MediaType.APPLICATION_CBOR,
+                cborConverter.getObjectMapper());
+        List<Map<String, Object>> smile = read("/films/popular?count=7", SMILE, smileConverter.getObjectMapper());
+        assertThat(json).hasSize(3);
+        assertThat(cbor).isEqualTo(json);
+        assertThat(smile).isEqualTo(json);
+        assertThat(payloadCache.size()).isEqualTo(entries + 3);
+
+        // Повторный запрос того же формата берет готовую запись
+        assertThat(read("/films/popular?count=7", MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper()))
+                .isEqualTo(cbor);
+        assertThat(payloadCache.size()).isEqualTo(entries + 3);
+    }
+
+    @Test
+    void shouldApplyFieldsToPopularFilmsInBinaryFormats() throws Exception {
+        assertThat(read("/films/popular?count=8&fields=name,mpa", MediaType.APPLICATION_CBOR,
+                cborConverter.getObjectMapper()))
+                .hasSize(3)
+                .allSatisfy(film -> assertThat(film).containsOnlyKeys("id", "name", "mpa"));
+        assertThat(read("/films/popular?count=8&fields=name,mpa", SMILE, smileConverter.getObjectMapper()))
+                .hasSize(3)
+                .allSatisfy(film -> assertThat(film).containsOnlyKeys("id", "name", "mpa"));
+        // Без fields в том же формате выводятся все поля
+        assertThat(read("/films/popular?count=8", SMILE, smileConverter.getObjectMapper()))
+                .allSatisfy(film -> assertThat(film).containsKeys("description", "genres"));
+    }
+
+    @Test
+    void shouldTagEachFormatWithItsOwnETag() throws Exception {
+        for (String path : List.of("/films/popular?count=9", "/films/1", "/mpa", "/genres")) {
+            String json = etag(path, MediaType.APPLICATION_JSON);
+            String cbor = etag(path, MediaType.APPLICATION_CBOR);
+            assertThat(json).isNotEqualTo(cbor);
+
+            // ETag JSON не подходит для CBOR: клиент получает тело в запрошенном формате, а не 304
+            mockMvc.perform(get(path).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, json))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE));
+            mockMvc.perform(get(path).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cbor))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+        }
+    }
+
+    private String etag(String path, MediaType format) throws Exception {
+        return mockMvc.perform(get(path).accept(format))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private List<Map<String, Object>> read(String path, MediaType format, ObjectMapper mapper) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).accept(format))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, format.toString()))
+                .andReturn();
+        if (path.startsWith("/films/popular")) {
+            assertThat(result.getResponse().getHeader(HttpHeaders.VARY))
+                    .contains(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return mapper.readValue(result.getResponse().getContentAsByteArray(), FILMS);
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteThrottlingFilterTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private WriteRateLimiter rateLimiter;
+    private PoolWaitMonitor poolWaitMonitor;
+    private WriteThrottlingFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        // 2 запроса в секунду на клиента, не больше 3 подряд; общий лимит 4 подряд
+        rateLimiter = new WriteRateLimiter(2, 3, 100, 4, 100, clock::get);
+        poolWaitMonitor = new PoolWaitMonitor(100, clock::get);
+        filter = new WriteThrottlingFilter(rateLimiter, poolWaitMonitor, new ObjectMapper());
+    }
+
+    @Test
+    public void testClientIsLimitedAfterBurstAndRecovers() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(put("/films/1/like/7", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse rejected = put("/films/2/like/7", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(rejected.getContentAsString()).contains("Too many requests");
+
+        // Другие клиенты и остальные запросы не затронуты
+        assertThat(put("/films/2/like/7", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(request("DELETE", "/films/2/like/7", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(put("/films", "10.0.0.1").getStatus()).isEqualTo(200);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(put("/films/2/like/7", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(rateLimiter.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGlobalLimitAppliesAcrossClients() throws Exception {
+        for (int client = 1; client <= 4; client++) {
+            assertThat(put("/users/1/friends/100", "10.0.0." + client).getStatus()).isEqualTo(200);
+        }
+        assertThat(put("/users/1/friends/100", "10.0.0.5").getStatus()).isEqualTo(429);
+        // Отклоненный общим лимитом запрос не заводит корзину клиента
+        assertThat(rateLimiter.getTrackedClients()).isEqualTo(4);
+    }
+
+    @Test
+    public void testChangingUserIdInPathDoesNotBypassClientLimit() throws Exception {
+        for (int user = 1; user <= 3; user++) {
+            assertThat(put("/films/1/like/" + user, "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        assertThat(put("/films/1/like/4", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(put("/users/5/friends/6", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    public void testRejectedClientRequestsDoNotSpendGlobalPermits() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(put("/films/1/like/7", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertThat(put("/films/1/like/7", "10.0.0.1").getStatus()).isEqualTo(429);
+        }
+        assertThat(put("/films/1/like/7", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testTrackedClientsAreBoundedByLeastRecentUse() {
+        WriteRateLimiter limiter = new WriteRateLimiter(2, 3, 100, 100, 2, clock::get);
+        for (String client : new String[] {"a", "b", "a", "c"}) {
+            assertThat(limiter.tryAcquire(client)).isZero();
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertThat(limiter.getTrackedClients()).isEqualTo(3);
+
+        limiter.evictIdleBuckets();
+        assertThat(limiter.getTrackedClients()).isEqualTo(2);
+        // Вытеснен клиент b, а корзина клиента a сохранилась: у него остался один запрос подряд
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+    }
+
+    @Test
+    public void testWritesAreShedWhileDatabaseIsOverloaded() throws Exception {
+        poolWaitMonitor.record(TimeUnit.MILLISECONDS.toNanos(400));
+
+        MockHttpServletResponse shed = put("/films/1/like/7", "10.0.0.1");
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getContentAsString()).contains("Service overloaded");
+        // Отклоненный из-за перегрузки запрос не расходует токены клиента
+        assertThat(rateLimiter.getRejectedCount()).isZero();
+
+        // Без новых замеров среднее устаревает, и запросы снова принимаются
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertThat(put("/films/1/like/7", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testShortWaitsDoNotTriggerShedding() {
+        for (int i = 0; i < 10; i++) {
+            poolWaitMonitor.record(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        poolWaitMonitor.record(TimeUnit.MILLISECONDS.toNanos(300));
+
+        assertThat(poolWaitMonitor.isOverloaded()).isFalse();
+        assertThat(poolWaitMonitor.getAverageWaitMillis()).isBetween(60.0, 70.0);
+    }
+
+    @Test
+    public void testRecoveredBucketsAreEvicted() throws Exception {
+        put("/films/1/like/7", "10.0.0.1");
+        put("/films/1/like/7", "10.0.0.2");
+        assertThat(rateLimiter.getTrackedClients()).isEqualTo(2);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        rateLimiter.evictIdleBuckets();
+
+        assertThat(rateLimiter.getTrackedClients()).isZero();
+    }
+
+    private MockHttpServletResponse put(String path, String client) throws Exception {
+        return request("PUT", path, client);
+    }
+
+    private MockHttpServletResponse request(String method, String path, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}